@@ -0,0 +1,124 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.ehospitalws.api.cache;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.Concept;
+import org.openmrs.EncounterType;
+import org.openmrs.OrderType;
+import org.openmrs.PersonAttributeType;
+import org.openmrs.VisitType;
+import org.openmrs.api.context.Context;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Module-wide cache of metadata ids keyed by uuid. Only the uuid to id mapping is kept, so every
+ * lookup still returns an object attached to the current session; loading by id goes through the
+ * Hibernate session and second-level caches instead of running a by-uuid query each time.
+ */
+public class MetadataCache {
+	
+	private static final Log log = LogFactory.getLog(MetadataCache.class);
+	
+	private static final Map<String, Integer> conceptIds = new ConcurrentHashMap<>();
+	
+	private static final Map<String, Integer> encounterTypeIds = new ConcurrentHashMap<>();
+	
+	private static final Map<String, Integer> visitTypeIds = new ConcurrentHashMap<>();
+	
+	private static final Map<String, Integer> orderTypeIds = new ConcurrentHashMap<>();
+	
+	private static final Map<String, Integer> personAttributeTypeIds = new ConcurrentHashMap<>();
+	
+	private MetadataCache() {
+	}
+	
+	public static Concept getConcept(String uuid) {
+		return resolve(conceptIds, uuid, Context.getConceptService()::getConceptByUuid, Concept::getConceptId,
+		    Context.getConceptService()::getConcept);
+	}
+	
+	public static EncounterType getEncounterType(String uuid) {
+		return resolve(encounterTypeIds, uuid, Context.getEncounterService()::getEncounterTypeByUuid,
+		    EncounterType::getEncounterTypeId, Context.getEncounterService()::getEncounterType);
+	}
+	
+	public static VisitType getVisitType(String uuid) {
+		return resolve(visitTypeIds, uuid, Context.getVisitService()::getVisitTypeByUuid, VisitType::getVisitTypeId,
+		    Context.getVisitService()::getVisitType);
+	}
+	
+	public static OrderType getOrderType(String uuid) {
+		return resolve(orderTypeIds, uuid, Context.getOrderService()::getOrderTypeByUuid, OrderType::getOrderTypeId,
+		    Context.getOrderService()::getOrderType);
+	}
+	
+	public static PersonAttributeType getPersonAttributeType(String uuid) {
+		return resolve(personAttributeTypeIds, uuid, Context.getPersonService()::getPersonAttributeTypeByUuid,
+		    PersonAttributeType::getPersonAttributeTypeId, Context.getPersonService()::getPersonAttributeType);
+	}
+	
+	/**
+	 * Loads the encounter, visit, order and person attribute types in one query per type. Concepts are
+	 * cached on first use, since the dictionary is too large to load up front.
+	 */
+	public static void warmUp() {
+		clear();
+		for (EncounterType encounterType : Context.getEncounterService().getAllEncounterTypes(true)) {
+			encounterTypeIds.put(encounterType.getUuid(), encounterType.getEncounterTypeId());
+		}
+		for (VisitType visitType : Context.getVisitService().getAllVisitTypes(true)) {
+			visitTypeIds.put(visitType.getUuid(), visitType.getVisitTypeId());
+		}
+		for (OrderType orderType : Context.getOrderService().getOrderTypes(true)) {
+			orderTypeIds.put(orderType.getUuid(), orderType.getOrderTypeId());
+		}
+		for (PersonAttributeType attributeType : Context.getPersonService().getAllPersonAttributeTypes(true)) {
+			personAttributeTypeIds.put(attributeType.getUuid(), attributeType.getPersonAttributeTypeId());
+		}
+		log.info("Metadata cache warmed up with " + encounterTypeIds.size() + " encounter types, " + visitTypeIds.size()
+		        + " visit types, " + orderTypeIds.size() + " order types and " + personAttributeTypeIds.size()
+		        + " person attribute types");
+	}
+	
+	public static void clear() {
+		conceptIds.clear();
+		encounterTypeIds.clear();
+		visitTypeIds.clear();
+		orderTypeIds.clear();
+		personAttributeTypeIds.clear();
+	}
+	
+	private static <T> T resolve(Map<String, Integer> ids, String uuid, Function<String, T> byUuid,
+	        Function<T, Integer> idOf, Function<Integer, T> byId) {
+		if (uuid == null) {
+			return null;
+		}
+		
+		Integer id = ids.get(uuid);
+		if (id != null) {
+			T cached = byId.apply(id);
+			if (cached != null) {
+				return cached;
+			}
+			ids.remove(uuid);
+		}
+		
+		T loaded = byUuid.apply(uuid);
+		if (loaded != null) {
+			ids.put(uuid, idOf.apply(loaded));
+		}
+		return loaded;
+	}
+}
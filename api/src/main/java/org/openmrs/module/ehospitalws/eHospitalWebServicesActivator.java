@@ -12,6 +12,7 @@ package org.openmrs.module.ehospitalws;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.openmrs.module.BaseModuleActivator;
+import org.openmrs.module.ehospitalws.api.cache.MetadataCache;
 
 /**
  * This class contains the logic that is run every time this module is either started or shutdown
@@ -24,6 +25,12 @@ public class eHospitalWebServicesActivator extends BaseModuleActivator {
 	 * @see #started()
 	 */
 	public void started() {
+		try {
+			MetadataCache.warmUp();
+		}
+		catch (Exception e) {
+			log.warn("Could not warm up the metadata cache, it will be filled on first use", e);
+		}
 		log.info("Started eHospital Web Services");
 	}
 	
@@ -31,6 +38,7 @@ public class eHospitalWebServicesActivator extends BaseModuleActivator {
 	 * @see #shutdown()
 	 */
 	public void shutdown() {
+		MetadataCache.clear();
 		log.info("Shutdown eHospital Web Services");
 	}
 	
@@ -0,0 +1,24 @@
+package org.openmrs.module.ehospitalws.advice;
+
+import org.openmrs.module.ehospitalws.api.cache.MetadataCache;
+import org.springframework.aop.AfterReturningAdvice;
+
+import java.lang.reflect.Method;
+import java.util.regex.Pattern;
+
+/**
+ * Clears the {@link MetadataCache} after any cached metadata type is saved, retired, unretired or
+ * purged through the core services.
+ */
+public class MetadataCacheInvalidationAdvice implements AfterReturningAdvice {
+	
+	private static final Pattern METADATA_CHANGE = Pattern
+	        .compile("^(save|retire|unretire|purge)(Concept|EncounterType|VisitType|OrderType|PersonAttributeType)$");
+	
+	@Override
+	public void afterReturning(Object returnValue, Method method, Object[] args, Object target) {
+		if (METADATA_CHANGE.matcher(method.getName()).matches()) {
+			MetadataCache.clear();
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package org.openmrs.module.ehospitalws.advice;
+
+import org.openmrs.Person;
+import org.openmrs.PersonAttribute;
+import org.openmrs.PersonName;
+import org.openmrs.module.ehospitalws.service.PatientContactServiceImpl;
+import org.openmrs.module.ehospitalws.util.TransactionUtil;
+import org.springframework.aop.AfterReturningAdvice;
+
+import java.lang.reflect.Method;
+import java.util.regex.Pattern;
+
+/**
+ * Evicts cached patient contacts after a person, patient, name or attribute is changed through the
+ * core services. The eviction runs once the change is committed. Changes that cannot be tied to one
+ * person clear the whole cache.
+ */
+public class PatientContactCacheInvalidationAdvice implements AfterReturningAdvice {
+	
+	private static final Pattern CONTACT_CHANGE = Pattern.compile(
+	    "^(save|void|unvoid|purge|merge)(Person|Patient|Patients|PersonName|PersonAttribute|PersonAttributeType)$");
+	
+	@Override
+	public void afterReturning(Object returnValue, Method method, Object[] args, Object target) {
+		if (!CONTACT_CHANGE.matcher(method.getName()).matches()) {
+			return;
+		}
+		
+		// A merge changes more than one person
+		Object subject = args != null && args.length > 0 && !method.getName().startsWith("merge") ? args[0] : null;
+		Person person = null;
+		if (subject instanceof Person) {
+			person = (Person) subject;
+		} else if (subject instanceof PersonName) {
+			person = ((PersonName) subject).getPerson();
+		} else if (subject instanceof PersonAttribute) {
+			person = ((PersonAttribute) subject).getPerson();
+		}
+		
+		if (person != null) {
+			String personUuid = person.getUuid();
+			TransactionUtil.runAfterCommit(() -> PatientContactServiceImpl.evict(personUuid));
+		} else {
+			TransactionUtil.runAfterCommit(PatientContactServiceImpl::clearCache);
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package org.openmrs.module.ehospitalws.advice;
+
+import org.openmrs.Condition;
+import org.openmrs.Encounter;
+import org.openmrs.Obs;
+import org.openmrs.Order;
+import org.openmrs.Person;
+import org.openmrs.Visit;
+import org.openmrs.module.ehospitalws.util.PatientSummaryCache;
+import org.openmrs.module.ehospitalws.util.TransactionUtil;
+import org.springframework.aop.AfterReturningAdvice;
+
+import java.lang.reflect.Method;
+import java.util.regex.Pattern;
+
+/**
+ * Evicts a patient's cached LLM summary after one of their obs, orders, conditions, visits or
+ * encounters, or the patient or person itself, is changed through the core services. The eviction
+ * runs once the change is committed. Changes that cannot be tied to one patient clear the whole cache.
+ */
+public class PatientSummaryCacheInvalidationAdvice implements AfterReturningAdvice {
+	
+	private static final Pattern SUMMARY_CHANGE = Pattern.compile(
+	    "^(save|void|unvoid|purge|discontinue|end|merge)(Obs|Order|Condition|Visit|Encounter|Patient|Patients|Person)$");
+	
+	@Override
+	public void afterReturning(Object returnValue, Method method, Object[] args, Object target) {
+		if (!SUMMARY_CHANGE.matcher(method.getName()).matches()) {
+			return;
+		}
+		
+		// A merge changes more than one patient
+		Object subject = args != null && args.length > 0 && !method.getName().startsWith("merge") ? args[0] : null;
+		Person person = null;
+		if (subject instanceof Obs) {
+			person = ((Obs) subject).getPerson();
+		} else if (subject instanceof Order) {
+			person = ((Order) subject).getPatient();
+		} else if (subject instanceof Condition) {
+			person = ((Condition) subject).getPatient();
+		} else if (subject instanceof Visit) {
+			person = ((Visit) subject).getPatient();
+		} else if (subject instanceof Encounter) {
+			person = ((Encounter) subject).getPatient();
+		} else if (subject instanceof Person) {
+			person = (Person) subject;
+		}
+		
+		if (person != null) {
+			String personUuid = person.getUuid();
+			TransactionUtil.runAfterCommit(() -> PatientSummaryCache.evict(personUuid));
+		} else {
+			TransactionUtil.runAfterCommit(PatientSummaryCache::clear);
+		}
+	}
+}
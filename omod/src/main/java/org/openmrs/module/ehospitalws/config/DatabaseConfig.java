@@ -1,35 +1,48 @@
 package org.openmrs.module.ehospitalws.config;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.ehospitalws.util.OpenMRSPropertiesUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
 
+import javax.annotation.PreDestroy;
 import javax.sql.DataSource;
 import java.util.Properties;
 
 @Configuration
 public class DatabaseConfig {
 	
-	@Bean
-	public DataSource dataSource() {
-		// Fetch properties from OpenMRS runtime properties
-		Properties properties = Context.getRuntimeProperties();
-		
-		String driverClassName = getProperty(properties, "connection.driver_class");
-		String url = getProperty(properties, "connection.url");
-		String username = getProperty(properties, "connection.username");
-		String password = getProperty(properties, "connection.password");
-		
-		// Set up the data source
-		DriverManagerDataSource dataSource = new DriverManagerDataSource();
-		dataSource.setDriverClassName(driverClassName);
-		dataSource.setUrl(url);
-		dataSource.setUsername(username);
-		dataSource.setPassword(password);
+	private static final Logger log = LoggerFactory.getLogger(DatabaseConfig.class);
+	
+	// Set only when the module had to create its own pool, so that shutdown never closes the core pool
+	private HikariDataSource ownPool;
+	
+	/**
+	 * Reuses the connection pool behind the OpenMRS core session factory, so the module's JDBC queries
+	 * and Hibernate share one set of connections. If that pool cannot be reached, or
+	 * {@code db.pool.shared} is false, a HikariCP pool is created from the OpenMRS connection properties.
+	 */
+	@Bean(destroyMethod = "")
+	public DataSource dataSource(SessionFactory sessionFactory) {
+		if (Boolean.parseBoolean(OpenMRSPropertiesUtil.getProperty("db.pool.shared", "true"))) {
+			DataSource coreDataSource = unwrapCoreDataSource(sessionFactory);
+			if (coreDataSource != null) {
+				log.info("Using the OpenMRS core connection pool for module JDBC queries");
+				return coreDataSource;
+			}
+			log.warn("The OpenMRS core connection pool is not available, creating a separate pool");
+		}
 		
-		return dataSource;
+		ownPool = createPool(Context.getRuntimeProperties());
+		return ownPool;
 	}
 	
 	@Bean
@@ -37,6 +50,52 @@ public class DatabaseConfig {
 		return new JdbcTemplate(dataSource);
 	}
 	
+	@PreDestroy
+	public void close() {
+		if (ownPool != null) {
+			ownPool.close();
+		}
+	}
+	
+	private static DataSource unwrapCoreDataSource(SessionFactory sessionFactory) {
+		try {
+			ConnectionProvider connectionProvider = sessionFactory.unwrap(SessionFactoryImplementor.class)
+			        .getServiceRegistry().getService(ConnectionProvider.class);
+			if (connectionProvider != null && connectionProvider.isUnwrappableAs(DataSource.class)) {
+				return connectionProvider.unwrap(DataSource.class);
+			}
+		}
+		catch (RuntimeException e) {
+			log.warn("Could not unwrap the OpenMRS core DataSource", e);
+		}
+		return null;
+	}
+	
+	/**
+	 * Pool sizes, timeouts and the leak detection threshold come from {@code db.pool.*} runtime
+	 * properties. Pool statistics are published over JMX as {@code com.zaxxer.hikari:type=Pool (ehospitalws)}.
+	 */
+	private static HikariDataSource createPool(Properties properties) {
+		HikariConfig config = new HikariConfig();
+		config.setPoolName("ehospitalws");
+		config.setDriverClassName(getProperty(properties, "connection.driver_class"));
+		config.setJdbcUrl(getProperty(properties, "connection.url"));
+		config.setUsername(getProperty(properties, "connection.username"));
+		config.setPassword(getProperty(properties, "connection.password"));
+		
+		config.setMaximumPoolSize(Integer.parseInt(OpenMRSPropertiesUtil.getProperty("db.pool.max.size", "10")));
+		config.setMinimumIdle(Integer.parseInt(OpenMRSPropertiesUtil.getProperty("db.pool.min.idle", "2")));
+		config.setConnectionTimeout(Long.parseLong(OpenMRSPropertiesUtil.getProperty("db.pool.connection.timeout", "5000")));
+		config.setValidationTimeout(Long.parseLong(OpenMRSPropertiesUtil.getProperty("db.pool.validation.timeout", "3000")));
+		config.setIdleTimeout(Long.parseLong(OpenMRSPropertiesUtil.getProperty("db.pool.idle.timeout", "600000")));
+		config.setMaxLifetime(Long.parseLong(OpenMRSPropertiesUtil.getProperty("db.pool.max.lifetime", "1800000")));
+		config.setLeakDetectionThreshold(
+		    Long.parseLong(OpenMRSPropertiesUtil.getProperty("db.pool.leak.detection.threshold", "60000")));
+		config.setRegisterMbeans(true);
+		
+		return new HikariDataSource(config);
+	}
+	
 	// Helper method to fetch and trim properties
 	public static String getProperty(Properties properties, String key) {
 		String value = properties.getProperty(key, "").trim();
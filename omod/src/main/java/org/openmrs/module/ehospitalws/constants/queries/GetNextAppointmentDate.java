@@ -1,5 +1,6 @@
 package org.openmrs.module.ehospitalws.constants.queries;
 
+import org.openmrs.module.ehospitalws.web.dto.AppointmentReminderDetails;
 import org.springframework.stereotype.Component;
 
 import javax.persistence.EntityManager;
@@ -8,8 +9,11 @@ import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Component
@@ -72,4 +76,53 @@ public class GetNextAppointmentDate {
 		
 		return results.stream().map(Timestamp::toLocalDateTime).collect(Collectors.toList());
 	}
+	
+	/**
+	 * Returns every patient with scheduled appointments on the given date, with their name, phone number
+	 * and appointment times, in one query. The preferred name is used, or the first non-voided name when
+	 * none is preferred. Patients without a phone number are left out.
+	 */
+	public List<AppointmentReminderDetails> getAppointmentRemindersForDate(LocalDate date, String phoneAttributeTypeUuid) {
+		if (entityManager == null) {
+			throw new IllegalStateException("EntityManager is not initialized!");
+		}
+		
+		String query = "SELECT p.uuid, pn.given_name, pn.family_name, pa.value, fp.start_date_time "
+		        + "FROM openmrs.patient_appointment fp "
+		        + "JOIN openmrs.patient pt ON pt.patient_id = fp.patient_id AND pt.voided = 0 "
+		        + "JOIN openmrs.person p ON p.person_id = fp.patient_id "
+		        + "LEFT JOIN openmrs.person_name pn ON pn.person_name_id = (SELECT n.person_name_id "
+		        + "FROM openmrs.person_name n WHERE n.person_id = p.person_id AND n.voided = 0 "
+		        + "ORDER BY n.preferred DESC, n.person_name_id LIMIT 1) "
+		        + "JOIN openmrs.person_attribute pa ON pa.person_id = p.person_id AND pa.voided = 0 "
+		        + "JOIN openmrs.person_attribute_type pat ON pat.person_attribute_type_id = pa.person_attribute_type_id "
+		        + "AND pat.uuid = :phoneAttributeTypeUuid "
+		        + "WHERE fp.status = 'Scheduled' AND fp.start_date_time >= :dayStart AND fp.start_date_time < :nextDayStart "
+		        + "ORDER BY p.person_id, fp.start_date_time ASC";
+		
+		@SuppressWarnings("unchecked")
+		List<Object[]> rows = entityManager.createNativeQuery(query)
+		        .setParameter("phoneAttributeTypeUuid", phoneAttributeTypeUuid)
+		        .setParameter("dayStart", Timestamp.valueOf(date.atStartOfDay()))
+		        .setParameter("nextDayStart", Timestamp.valueOf(date.plusDays(1).atStartOfDay())).getResultList();
+		
+		Map<String, AppointmentReminderDetails> reminders = new LinkedHashMap<>();
+		for (Object[] row : rows) {
+			AppointmentReminderDetails reminder = reminders.computeIfAbsent((String) row[0], uuid -> {
+				AppointmentReminderDetails details = new AppointmentReminderDetails();
+				details.setPatientUuid(uuid);
+				details.setGivenName((String) row[1]);
+				details.setFamilyName((String) row[2]);
+				details.setPhoneNumber((String) row[3]);
+				return details;
+			});
+			
+			// A patient with more than one phone attribute shows up once per number; keep the first
+			LocalDateTime appointmentTime = ((Timestamp) row[4]).toLocalDateTime();
+			if (!reminder.getAppointmentTimes().contains(appointmentTime)) {
+				reminder.getAppointmentTimes().add(appointmentTime);
+			}
+		}
+		return new ArrayList<>(reminders.values());
+	}
 }
@@ -3,6 +3,7 @@ package org.openmrs.module.ehospitalws.dao;
 import org.openmrs.module.ehospitalws.model.LLMMessages;
 
 import java.sql.Timestamp;
+import java.util.Date;
 import java.util.List;
 
 public interface LLMMessagesDAO {
@@ -17,5 +18,10 @@ public interface LLMMessagesDAO {
 	
 	LLMMessages getLatestMessageByPatientUuid(String patientUuid);
 	
-	List<LLMMessages> getAllMessages();
+	/**
+	 * Returns one page of messages, newest first, created within the range when both bounds are given.
+	 */
+	List<LLMMessages> getMessages(Date createdFrom, Date createdTo, int firstResult, int maxResults);
+	
+	long countMessages(Date createdFrom, Date createdTo);
 }
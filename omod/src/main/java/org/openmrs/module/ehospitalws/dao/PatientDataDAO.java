@@ -0,0 +1,97 @@
+package org.openmrs.module.ehospitalws.dao;
+
+import org.openmrs.Concept;
+import org.openmrs.Condition;
+import org.openmrs.Obs;
+import org.openmrs.Order;
+import org.openmrs.Patient;
+import org.openmrs.PatientIdentifier;
+import org.openmrs.PersonAddress;
+import org.openmrs.PersonAttribute;
+import org.openmrs.PersonName;
+import org.openmrs.Visit;
+import org.openmrs.module.ehospitalws.util.PageCursor;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+public interface PatientDataDAO {
+	
+	List<Patient> getPatientsCreatedBetween(Date startDate, Date endDate, PageCursor after, int firstResult,
+	        int maxResults);
+	
+	long countPatientsCreatedBetween(Date startDate, Date endDate);
+	
+	List<PersonName> getPersonNames(Collection<Integer> personIds);
+	
+	List<PersonName> getPersonNamesByPersonUuids(Collection<String> personUuids);
+	
+	List<PersonAttribute> getPersonAttributesByPersonUuids(Collection<String> personUuids, Integer attributeTypeId);
+	
+	List<PatientIdentifier> getPatientIdentifiers(Collection<Integer> patientIds);
+	
+	List<PersonAddress> getPersonAddresses(Collection<Integer> personIds);
+	
+	List<PersonAttribute> getPersonAttributes(Collection<Integer> personIds);
+	
+	List<Visit> getVisitsByPatientIds(Collection<Integer> patientIds);
+	
+	/**
+	 * Returns the non-voided obs of the given concepts in the given visits, with their encounter and
+	 * visit fetched in the same query.
+	 */
+	List<Obs> getObsForVisits(Collection<Integer> visitIds, Collection<Concept> concepts);
+	
+	List<Patient> getPatientsByIds(Collection<Integer> patientIds);
+	
+	/**
+	 * Returns the keys (earliest visit start, patient id) of patients with a visit of the given types in
+	 * the date range, ordered by that key. When an encounter type is given, only patients who also had
+	 * an encounter of that type in the range are returned.
+	 */
+	List<PageCursor> getOpdPatientKeys(Collection<String> visitTypeUuids, String encounterTypeUuid, Date startDate,
+	        Date endDate, PageCursor after, int firstResult, int maxResults);
+	
+	/**
+	 * Counts the visits of the given types started within the date range. Each row holds the visit
+	 * type uuid and the number of visits.
+	 */
+	List<Object[]> countVisitsByType(Collection<String> visitTypeUuids, Date startDate, Date endDate);
+	
+	List<Obs> getLatestObsByConcepts(Collection<Integer> personIds, Collection<Concept> concepts);
+	
+	/**
+	 * Returns each patient's most recent non-voided visits; a patient with several visits starting at
+	 * the same latest time has all of them returned, highest visit id first.
+	 */
+	List<Visit> getLatestVisits(Collection<Integer> patientIds);
+	
+	/**
+	 * Returns the non-voided orders of the given type placed in the given visits, with their encounter
+	 * and visit fetched in the same query.
+	 */
+	<T extends Order> List<T> getOrdersForVisits(Collection<Integer> visitIds, Integer orderTypeId, Class<T> orderClass);
+	
+	/**
+	 * Returns the non-voided conditions without an end date recorded in encounters of the given visits,
+	 * with their encounter and visit fetched in the same query.
+	 */
+	List<Condition> getActiveConditionsForVisits(Collection<Integer> visitIds);
+	
+	List<Patient> getPatientsByUuids(Collection<String> patientUuids);
+	
+	/**
+	 * Returns the ids of patients with a non-voided visit started within the date range.
+	 */
+	List<Integer> getPatientIdsWithVisitsBetween(Date startDate, Date endDate);
+	
+	/**
+	 * Returns the ids of patients with a non-voided visit started within the date range whose latest obs
+	 * of the consent concept, whenever it was recorded, is answered with the given concept.
+	 */
+	List<Integer> getConsentedPatientIdsWithVisitsBetween(Integer consentConceptId, Integer answerConceptId,
+	        Date startDate, Date endDate);
+	
+	void evict(Collection<?> entities);
+}
@@ -1,12 +1,14 @@
 package org.openmrs.module.ehospitalws.dao;
 
 import org.openmrs.module.ehospitalws.model.ScheduledMessage;
+import org.openmrs.module.ehospitalws.util.PageCursor;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
 import java.sql.*;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 @Repository
@@ -18,40 +20,106 @@ public class ScheduledMessageDAO {
 		this.jdbcTemplate = jdbcTemplate;
 	}
 	
-	public List<ScheduledMessage> getScheduledAndSentMessages() {
-		LocalDate today = LocalDate.now();
-		LocalDateTime startOfToday = today.atStartOfDay();
-		LocalDateTime endOfToday = startOfToday.plusDays(1).minusNanos(1);
-		
-		String sql = "SELECT id, patient_uuid, phone_number, message, scheduled_date, status, sent_timestamp "
-		        + "FROM scheduled_messages " + "WHERE scheduled_date = ? OR (sent_timestamp BETWEEN ? AND ?)";
-		
-		return jdbcTemplate.query(sql, this::mapRowToScheduledMessage, Date.valueOf(today), Timestamp.valueOf(startOfToday),
-		    Timestamp.valueOf(endOfToday));
+	/**
+	 * Returns up to {@code limit} messages scheduled or sent within the date range, ordered by
+	 * scheduled date and id, optionally restricted to the given statuses and patient. When a cursor is
+	 * given, only messages after it are returned.
+	 */
+	public List<ScheduledMessage> findMessages(LocalDate fromDate, LocalDate toDate, List<String> statuses,
+	        String patientUuid, PageCursor after, int limit) {
+		List<Object> args = new ArrayList<>();
+		String sql = "SELECT * FROM (" + buildFilteredUnion(fromDate, toDate, statuses, patientUuid, after, args)
+		        + ") m ORDER BY m.scheduled_date, m.id LIMIT ?";
+		args.add(limit);
+		return jdbcTemplate.query(sql, this::mapRowToScheduledMessage, args.toArray());
 	}
 	
-	// Save a new scheduled message
-	public void saveScheduledMessage(ScheduledMessage message) {
-		String sql = "INSERT INTO scheduled_messages (patient_uuid, phone_number, message, scheduled_date, status, sent_timestamp) "
-		        + "VALUES (?, ?, ?, ?, ?, ?)";
-		
-		jdbcTemplate.update(sql, (PreparedStatement ps) -> {
-			ps.setString(1, message.getPatientUuid());
-			ps.setString(2, message.getPhoneNumber());
-			ps.setString(3, message.getMessage());
-			ps.setDate(4, message.getScheduledDate());
-			ps.setString(5, message.getStatus());
-			ps.setTimestamp(6, message.getSentTimestamp());
-		});
+	public long countMessages(LocalDate fromDate, LocalDate toDate, List<String> statuses, String patientUuid) {
+		List<Object> args = new ArrayList<>();
+		String sql = "SELECT COUNT(*) FROM (" + buildFilteredUnion(fromDate, toDate, statuses, patientUuid, null, args)
+		        + ") m";
+		return jdbcTemplate.queryForObject(sql, Long.class, args.toArray());
 	}
 	
-	public List<ScheduledMessage> getMessagesScheduledForTomorrow() {
-		LocalDate tomorrow = LocalDate.now().plusDays(1);
+	/**
+	 * Builds a two-branch UNION of the messages scheduled within the date range and those sent within
+	 * it, instead of an OR, so each branch can use its own index. The filters and keyset condition are
+	 * repeated in each branch; UNION drops rows matching both.
+	 */
+	private String buildFilteredUnion(LocalDate fromDate, LocalDate toDate, List<String> statuses, String patientUuid,
+	        PageCursor after, List<Object> args) {
+		StringBuilder filters = new StringBuilder();
+		List<Object> filterArgs = new ArrayList<>();
+		if (statuses != null && !statuses.isEmpty()) {
+			filters.append(" AND status IN (").append(String.join(", ", Collections.nCopies(statuses.size(), "?")))
+			        .append(")");
+			filterArgs.addAll(statuses);
+		}
+		if (patientUuid != null) {
+			filters.append(" AND patient_uuid = ?");
+			filterArgs.add(patientUuid);
+		}
+		if (after != null) {
+			Date cursorDate = new Date(after.getDate().getTime());
+			filters.append(" AND (scheduled_date > ? OR (scheduled_date = ? AND id > ?))");
+			filterArgs.add(cursorDate);
+			filterArgs.add(cursorDate);
+			filterArgs.add(after.getId());
+		}
 		
+		String columns = "SELECT id, patient_uuid, phone_number, message, scheduled_date, status, sent_timestamp "
+		        + "FROM scheduled_messages WHERE ";
+		args.add(Date.valueOf(fromDate));
+		args.add(Date.valueOf(toDate));
+		args.addAll(filterArgs);
+		args.add(Timestamp.valueOf(fromDate.atStartOfDay()));
+		args.add(Timestamp.valueOf(toDate.plusDays(1).atStartOfDay()));
+		args.addAll(filterArgs);
+		return columns + "scheduled_date BETWEEN ? AND ?" + filters + " UNION " + columns
+		        + "sent_timestamp >= ? AND sent_timestamp < ?" + filters;
+	}
+	
+	// Rescheduling the same patient and day only refreshes a message that has not gone out yet
+	private static final String UPSERT_SCHEDULED_MESSAGE_SQL = "INSERT INTO scheduled_messages "
+	        + "(patient_uuid, phone_number, message, scheduled_date, status, sent_timestamp) VALUES (?, ?, ?, ?, ?, ?) "
+	        + "ON DUPLICATE KEY UPDATE phone_number = IF(status = 'SCHEDULED', VALUES(phone_number), phone_number), "
+	        + "message = IF(status = 'SCHEDULED', VALUES(message), message)";
+	
+	/**
+	 * Saves the messages with JDBC batch updates of at most {@code batchSize} rows each.
+	 */
+	public void saveScheduledMessages(List<ScheduledMessage> messages, int batchSize) {
+		jdbcTemplate.batchUpdate(UPSERT_SCHEDULED_MESSAGE_SQL, messages, batchSize, this::setScheduledMessage);
+	}
+	
+	private void setScheduledMessage(PreparedStatement ps, ScheduledMessage message) throws SQLException {
+		ps.setString(1, message.getPatientUuid());
+		ps.setString(2, message.getPhoneNumber());
+		ps.setString(3, message.getMessage());
+		ps.setDate(4, message.getScheduledDate());
+		ps.setString(5, message.getStatus());
+		ps.setTimestamp(6, message.getSentTimestamp());
+	}
+	
+	/**
+	 * Claims up to {@code limit} unsent messages scheduled for the given date, so that only the node
+	 * holding the claim sends them. Claims older than {@code staleBefore} are taken over.
+	 * 
+	 * @return the number of rows claimed
+	 */
+	public int claimMessagesScheduledFor(LocalDate scheduledDate, String claimToken, Timestamp now,
+	        Timestamp staleBefore, int limit) {
+		String sql = "UPDATE scheduled_messages SET claimed_by = ?, claimed_at = ? "
+		        + "WHERE status = 'SCHEDULED' AND scheduled_date = ? AND (claimed_by IS NULL OR claimed_at < ?) "
+		        + "ORDER BY id LIMIT ?";
+		return jdbcTemplate.update(sql, claimToken, now, Date.valueOf(scheduledDate), staleBefore, limit);
+	}
+	
+	public List<ScheduledMessage> getClaimedMessages(String claimToken) {
 		String sql = "SELECT id, patient_uuid, phone_number, message, scheduled_date, status, sent_timestamp "
-		        + "FROM scheduled_messages " + "WHERE status = 'SCHEDULED' AND scheduled_date = ?";
+		        + "FROM scheduled_messages WHERE claimed_by = ? AND status = 'SCHEDULED'";
 		
-		return jdbcTemplate.query(sql, this::mapRowToScheduledMessage, Date.valueOf(tomorrow));
+		return jdbcTemplate.query(sql, this::mapRowToScheduledMessage, claimToken);
 	}
 	
 	public void updateMessageStatus(Long messageId, String status, Timestamp sentTimestamp) {
@@ -59,6 +127,61 @@ public class ScheduledMessageDAO {
 		jdbcTemplate.update(sql, status, sentTimestamp, messageId);
 	}
 	
+	/**
+	 * Writes the status and sent timestamp of each message with JDBC batch updates of at most
+	 * {@code batchSize} rows each, releasing any claim on them.
+	 */
+	public void updateMessageStatuses(List<ScheduledMessage> messages, int batchSize) {
+		String sql = "UPDATE scheduled_messages SET status = ?, sent_timestamp = ?, claimed_by = NULL, claimed_at = NULL "
+		        + "WHERE id = ?";
+		jdbcTemplate.batchUpdate(sql, messages, batchSize, (PreparedStatement ps, ScheduledMessage message) -> {
+			ps.setString(1, message.getStatus());
+			ps.setTimestamp(2, message.getSentTimestamp());
+			ps.setLong(3, message.getId());
+		});
+	}
+	
+	/**
+	 * Moves up to {@code limit} SENT messages sent before the cutoff to scheduled_messages_history.
+	 * The copy ignores rows already archived, so a run interrupted between the copy and the delete is
+	 * completed by the next one.
+	 * 
+	 * @return the number of messages moved
+	 */
+	public int archiveSentMessages(Timestamp sentBefore, int limit) {
+		return moveToHistory(jdbcTemplate.queryForList(
+		    "SELECT id FROM scheduled_messages WHERE status = 'SENT' AND sent_timestamp < ? ORDER BY sent_timestamp LIMIT ?",
+		    Long.class, sentBefore, limit));
+	}
+	
+	/**
+	 * Moves up to {@code limit} DEAD_LETTER messages scheduled before the cutoff to
+	 * scheduled_messages_history, keeping their last error.
+	 * 
+	 * @return the number of messages moved
+	 */
+	public int archiveDeadLetterMessages(Timestamp scheduledBefore, int limit) {
+		return moveToHistory(jdbcTemplate.queryForList(
+		    "SELECT id FROM scheduled_messages WHERE scheduled_date < ? AND status = 'DEAD_LETTER' "
+		            + "ORDER BY scheduled_date LIMIT ?",
+		    Long.class, new Date(scheduledBefore.getTime()), limit));
+	}
+	
+	private int moveToHistory(List<Long> ids) {
+		if (ids.isEmpty()) {
+			return 0;
+		}
+		
+		String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+		Object[] args = ids.toArray();
+		jdbcTemplate.update("INSERT IGNORE INTO scheduled_messages_history (id, patient_uuid, phone_number, message, "
+		        + "scheduled_date, status, sent_timestamp, attempt_count, last_error, archived_at) "
+		        + "SELECT id, patient_uuid, phone_number, message, scheduled_date, status, sent_timestamp, attempt_count, "
+		        + "last_error, NOW() FROM scheduled_messages WHERE id IN (" + placeholders + ")",
+		    args);
+		return jdbcTemplate.update("DELETE FROM scheduled_messages WHERE id IN (" + placeholders + ")", args);
+	}
+	
 	private ScheduledMessage mapRowToScheduledMessage(ResultSet rs, int rowNum) throws SQLException {
 		return new ScheduledMessage(rs.getLong("id"), rs.getString("patient_uuid"), rs.getString("phone_number"),
 		        rs.getString("message"), rs.getDate("scheduled_date"), rs.getString("status"),
@@ -0,0 +1,110 @@
+package org.openmrs.module.ehospitalws.dao;
+
+import org.openmrs.module.ehospitalws.model.OutboxMessage;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Retry bookkeeping shared by the tables that hold outgoing SMS. Rows are claimed with a single
+ * {@code UPDATE ... LIMIT}, so several nodes can drain the same table without picking up the same
+ * row twice.
+ */
+@Repository
+public class SmsOutboxDAO {
+	
+	public enum Table {
+		
+		SCHEDULED_MESSAGES("scheduled_messages", "sent_timestamp"),
+		
+		LLM_MESSAGES("llm_messages", "sent_at");
+		
+		private final String tableName;
+		
+		private final String sentColumn;
+		
+		Table(String tableName, String sentColumn) {
+			this.tableName = tableName;
+			this.sentColumn = sentColumn;
+		}
+	}
+	
+	private final JdbcTemplate jdbcTemplate;
+	
+	public SmsOutboxDAO(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+	
+	/**
+	 * Claims up to {@code limit} messages that are due for a retry. Claims older than
+	 * {@code staleBefore} are treated as abandoned and can be taken over.
+	 *
+	 * @return the number of rows claimed
+	 */
+	public int claimDueRetries(Table table, String claimToken, Timestamp now, Timestamp staleBefore, int limit) {
+		String sql = "UPDATE " + table.tableName + " SET claimed_by = ?, claimed_at = ? "
+		        + "WHERE status = 'RETRY' AND next_attempt_at <= ? AND (claimed_by IS NULL OR claimed_at < ?) "
+		        + "ORDER BY next_attempt_at LIMIT ?";
+		return jdbcTemplate.update(sql, claimToken, now, now, staleBefore, limit);
+	}
+	
+	/**
+	 * Moves SCHEDULED reminders whose claim went stale to RETRY, so the outbox sends them once the
+	 * dispatch that claimed them has died. Reminders for appointments that have already passed are
+	 * left alone.
+	 *
+	 * @return the number of rows requeued
+	 */
+	public int requeueStaleScheduledClaims(Timestamp now, Timestamp staleBefore) {
+		String sql = "UPDATE scheduled_messages SET status = 'RETRY', next_attempt_at = ?, claimed_by = NULL, "
+		        + "claimed_at = NULL WHERE status = 'SCHEDULED' AND claimed_by IS NOT NULL AND claimed_at < ? "
+		        + "AND scheduled_date >= CURDATE()";
+		return jdbcTemplate.update(sql, now, staleBefore);
+	}
+	
+	public List<OutboxMessage> getClaimedRetries(Table table, String claimToken) {
+		String sql = "SELECT id, phone_number, message, attempt_count FROM " + table.tableName
+		        + " WHERE claimed_by = ? AND status = 'RETRY'";
+		return jdbcTemplate.query(sql, (rs, rowNum) -> {
+			OutboxMessage message = new OutboxMessage();
+			message.setId(rs.getLong("id"));
+			message.setPhoneNumber(rs.getString("phone_number"));
+			message.setMessage(rs.getString("message"));
+			message.setAttemptCount(rs.getInt("attempt_count"));
+			return message;
+		}, claimToken);
+	}
+	
+	public void markSent(Table table, List<Long> ids, Timestamp sentAt, int batchSize) {
+		String sql = "UPDATE " + table.tableName + " SET status = 'SENT', " + table.sentColumn + " = ?, "
+		        + "last_error = NULL, claimed_by = NULL, claimed_at = NULL WHERE id = ?";
+		jdbcTemplate.batchUpdate(sql, ids, batchSize, (PreparedStatement ps, Long id) -> {
+			ps.setTimestamp(1, sentAt);
+			ps.setLong(2, id);
+		});
+	}
+	
+	/**
+	 * Counts a failed attempt for each message and schedules the next one with exponential backoff:
+	 * {@code min(maxDelaySeconds, baseDelaySeconds * 2^previousAttempts)}. A message that reaches
+	 * {@code maxAttempts} is moved to DEAD_LETTER instead.
+	 */
+	public void recordFailures(Table table, List<Long> ids, String error, Timestamp now, int maxAttempts,
+	        long baseDelaySeconds, long maxDelaySeconds, int batchSize) {
+		// MySQL applies the assignments left to right, so attempt_count is incremented last
+		String sql = "UPDATE " + table.tableName + " SET status = IF(attempt_count + 1 >= ?, 'DEAD_LETTER', 'RETRY'), "
+		        + "next_attempt_at = DATE_ADD(?, INTERVAL LEAST(?, ? * POW(2, attempt_count)) SECOND), "
+		        + "attempt_count = attempt_count + 1, last_error = ?, claimed_by = NULL, claimed_at = NULL WHERE id = ?";
+		jdbcTemplate.batchUpdate(sql, ids, batchSize, (PreparedStatement ps, Long id) -> {
+			ps.setInt(1, maxAttempts);
+			ps.setTimestamp(2, now);
+			ps.setLong(3, maxDelaySeconds);
+			ps.setLong(4, baseDelaySeconds);
+			ps.setString(5, error);
+			ps.setLong(6, id);
+		});
+	}
+}
@@ -0,0 +1,160 @@
+package org.openmrs.module.ehospitalws.gateway;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.openmrs.module.ehospitalws.model.OutboxMessage;
+import org.openmrs.module.ehospitalws.util.OpenMRSPropertiesUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends through the provider's JSON API: {@code sendsms} for a single message and, when
+ * {@code sms.api.bulk.url} is set, {@code sendbulk} for up to {@code sms.bulk.max.size} messages per
+ * request. Bulk messages carry their id as {@code clientsmsid}, which the provider echoes back per
+ * recipient.
+ */
+public class HttpSmsGateway implements SmsGateway {
+	
+	private static final Logger log = LoggerFactory.getLogger(HttpSmsGateway.class);
+	
+	private final String smsApiUrl;
+	
+	private final String bulkApiUrl;
+	
+	private final int maxBulkSize;
+	
+	// Fields that are the same for every message; each send copies it and adds the recipient and text
+	private final Map<String, String> requestBodyTemplate;
+	
+	private final CloseableHttpClient httpClient;
+	
+	private final RestTemplate restTemplate;
+	
+	public HttpSmsGateway() {
+		this.smsApiUrl = OpenMRSPropertiesUtil.getProperty("sms.api.url", "https://test.sms.com/api/services/sendsms/");
+		// Optional, so read directly: getProperty rejects blank values
+		this.bulkApiUrl = OpenMRSPropertiesUtil.getProperties().getProperty("sms.api.bulk.url", "").trim();
+		this.maxBulkSize = bulkApiUrl.isEmpty() ? 1
+		        : Integer.parseInt(OpenMRSPropertiesUtil.getProperty("sms.bulk.max.size", "20"));
+		if (maxBulkSize < 1) {
+			throw new IllegalArgumentException("sms.bulk.max.size must be at least 1, was " + maxBulkSize);
+		}
+		
+		Map<String, String> bodyTemplate = new HashMap<>();
+		bodyTemplate.put("apikey", OpenMRSPropertiesUtil.getProperty("sms.api.key", "default-api-key"));
+		bodyTemplate.put("partnerID", OpenMRSPropertiesUtil.getProperty("sms.partner.id", "default-partner-id"));
+		bodyTemplate.put("shortcode", OpenMRSPropertiesUtil.getProperty("sms.shortcode", "default-shortcode"));
+		bodyTemplate.put("pass_type", "plain");
+		this.requestBodyTemplate = Collections.unmodifiableMap(bodyTemplate);
+		
+		// One pooled, keep-alive client for all sends, so connections and TLS sessions are reused
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+		int maxConnections = Integer.parseInt(OpenMRSPropertiesUtil.getProperty("sms.http.max.connections", "20"));
+		connectionManager.setMaxTotal(maxConnections);
+		connectionManager.setDefaultMaxPerRoute(maxConnections);
+		connectionManager.setValidateAfterInactivity(10000);
+		
+		this.httpClient = HttpClients.custom().setConnectionManager(connectionManager)
+		        .setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE)
+		        .evictIdleConnections(60, TimeUnit.SECONDS).build();
+		
+		HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+		requestFactory.setConnectTimeout(
+		    Integer.parseInt(OpenMRSPropertiesUtil.getProperty("sms.http.connect.timeout", "5000")));
+		requestFactory.setReadTimeout(Integer.parseInt(OpenMRSPropertiesUtil.getProperty("sms.http.read.timeout", "10000")));
+		requestFactory.setConnectionRequestTimeout(
+		    Integer.parseInt(OpenMRSPropertiesUtil.getProperty("sms.http.connection.request.timeout", "5000")));
+		this.restTemplate = new RestTemplate(requestFactory);
+	}
+	
+	@Override
+	public boolean send(String phoneNumber, String message) {
+		try {
+			ResponseEntity<String> response = restTemplate.postForEntity(smsApiUrl,
+			    buildMessageBody(phoneNumber, message), String.class);
+			return response.getStatusCode() == HttpStatus.OK;
+		}
+		catch (Exception e) {
+			log.error("Error sending SMS to {}", phoneNumber, e);
+			return false;
+		}
+	}
+	
+	@Override
+	public int getMaxBulkSize() {
+		return maxBulkSize;
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public Set<Long> sendBulk(List<OutboxMessage> messages) {
+		Set<Long> accepted = new HashSet<>();
+		if (bulkApiUrl.isEmpty()) {
+			for (OutboxMessage message : messages) {
+				if (send(message.getPhoneNumber(), message.getMessage())) {
+					accepted.add(message.getId());
+				}
+			}
+			return accepted;
+		}
+		
+		List<Map<String, String>> smsList = new ArrayList<>();
+		for (OutboxMessage message : messages) {
+			Map<String, String> body = buildMessageBody(message.getPhoneNumber(), message.getMessage());
+			body.put("clientsmsid", String.valueOf(message.getId()));
+			smsList.add(body);
+		}
+		Map<String, Object> requestBody = new HashMap<>();
+		requestBody.put("count", smsList.size());
+		requestBody.put("smslist", smsList);
+		
+		try {
+			ResponseEntity<Map> response = restTemplate.postForEntity(bulkApiUrl, requestBody, Map.class);
+			Object responses = response.getBody() != null ? response.getBody().get("responses") : null;
+			if (response.getStatusCode() != HttpStatus.OK || !(responses instanceof List)) {
+				return accepted;
+			}
+			
+			// Each recipient gets its own response code, so one bad number does not fail the batch
+			for (Map<String, Object> recipient : (List<Map<String, Object>>) responses) {
+				Object code = recipient.get("response-code");
+				Object clientSmsId = recipient.get("clientsmsid");
+				if (code != null && "200".equals(code.toString()) && clientSmsId != null) {
+					accepted.add(Long.valueOf(clientSmsId.toString()));
+				}
+			}
+		}
+		catch (Exception e) {
+			log.error("Error sending bulk SMS request of {} message(s)", messages.size(), e);
+		}
+		return accepted;
+	}
+	
+	private Map<String, String> buildMessageBody(String phoneNumber, String message) {
+		Map<String, String> body = new HashMap<>(requestBodyTemplate);
+		body.put("mobile", phoneNumber);
+		body.put("message", message);
+		return body;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		httpClient.close();
+	}
+}
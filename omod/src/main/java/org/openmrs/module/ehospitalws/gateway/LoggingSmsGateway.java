@@ -0,0 +1,52 @@
+package org.openmrs.module.ehospitalws.gateway;
+
+import org.openmrs.module.ehospitalws.model.OutboxMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Accepts every message and only writes it to the log. Selected with {@code sms.gateway=log} for
+ * local testing, so that nothing reaches real phones.
+ */
+public class LoggingSmsGateway implements SmsGateway {
+	
+	private static final Logger log = LoggerFactory.getLogger(LoggingSmsGateway.class);
+	
+	private final int maxBulkSize;
+	
+	public LoggingSmsGateway(int maxBulkSize) {
+		if (maxBulkSize < 1) {
+			throw new IllegalArgumentException("sms.bulk.max.size must be at least 1, was " + maxBulkSize);
+		}
+		this.maxBulkSize = maxBulkSize;
+	}
+	
+	@Override
+	public boolean send(String phoneNumber, String message) {
+		log.info("SMS to {}: {}", phoneNumber, message);
+		return true;
+	}
+	
+	@Override
+	public int getMaxBulkSize() {
+		return maxBulkSize;
+	}
+	
+	@Override
+	public Set<Long> sendBulk(List<OutboxMessage> messages) {
+		Set<Long> accepted = new HashSet<>();
+		for (OutboxMessage message : messages) {
+			log.info("SMS {} to {}: {}", message.getId(), message.getPhoneNumber(), message.getMessage());
+			accepted.add(message.getId());
+		}
+		return accepted;
+	}
+	
+	@Override
+	public void close() {
+	}
+}
@@ -0,0 +1,33 @@
+package org.openmrs.module.ehospitalws.gateway;
+
+import org.openmrs.module.ehospitalws.model.OutboxMessage;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A provider that delivers SMS. The implementation in use is chosen by the {@code sms.gateway}
+ * runtime property, see {@link org.openmrs.module.ehospitalws.service.SmsService}.
+ */
+public interface SmsGateway extends Closeable {
+	
+	/**
+	 * @return true if the provider accepted the message
+	 */
+	boolean send(String phoneNumber, String message);
+	
+	/**
+	 * @return the largest number of messages {@link #sendBulk(List)} takes in one request, or 1 when the
+	 *         provider has no bulk endpoint
+	 */
+	int getMaxBulkSize();
+	
+	/**
+	 * Sends all the messages in one request to the provider, or one request per message when the
+	 * provider has no bulk endpoint.
+	 *
+	 * @return the ids of the messages the provider accepted
+	 */
+	Set<Long> sendBulk(List<OutboxMessage> messages);
+}
@@ -0,0 +1,18 @@
+package org.openmrs.module.ehospitalws.model;
+
+import lombok.Data;
+
+/**
+ * A message handed to the SMS gateway, identified by its row id in the table it was read from.
+ */
+@Data
+public class OutboxMessage {
+	
+	private Long id;
+	
+	private String phoneNumber;
+	
+	private String message;
+	
+	private int attemptCount;
+}
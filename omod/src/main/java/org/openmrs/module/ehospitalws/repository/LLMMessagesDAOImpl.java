@@ -9,7 +9,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.Query;
+import javax.persistence.TypedQuery;
 import java.sql.Timestamp;
+import java.util.Date;
 import java.util.List;
 
 @Repository
@@ -59,8 +61,29 @@ public class LLMMessagesDAOImpl implements LLMMessagesDAO {
 	}
 	
 	@Override
-	public List<LLMMessages> getAllMessages() {
-		return sessionFactory.getCurrentSession()
-		        .createQuery("FROM LLMMessages ORDER BY createdTimestamp DESC", LLMMessages.class).list();
+	public List<LLMMessages> getMessages(Date createdFrom, Date createdTo, int firstResult, int maxResults) {
+		boolean filtered = createdFrom != null && createdTo != null;
+		String hql = "FROM LLMMessages m"
+		        + (filtered ? " WHERE m.createdTimestamp >= :from AND m.createdTimestamp < :to" : "")
+		        + " ORDER BY m.createdTimestamp DESC, m.id DESC";
+		
+		TypedQuery<LLMMessages> query = sessionFactory.getCurrentSession().createQuery(hql, LLMMessages.class);
+		if (filtered) {
+			query.setParameter("from", createdFrom).setParameter("to", createdTo);
+		}
+		return query.setFirstResult(firstResult).setMaxResults(maxResults).getResultList();
+	}
+	
+	@Override
+	public long countMessages(Date createdFrom, Date createdTo) {
+		boolean filtered = createdFrom != null && createdTo != null;
+		String hql = "SELECT COUNT(m) FROM LLMMessages m"
+		        + (filtered ? " WHERE m.createdTimestamp >= :from AND m.createdTimestamp < :to" : "");
+		
+		TypedQuery<Long> query = sessionFactory.getCurrentSession().createQuery(hql, Long.class);
+		if (filtered) {
+			query.setParameter("from", createdFrom).setParameter("to", createdTo);
+		}
+		return query.getSingleResult();
 	}
 }
@@ -0,0 +1,271 @@
+package org.openmrs.module.ehospitalws.repository;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.query.Query;
+import org.openmrs.Concept;
+import org.openmrs.Condition;
+import org.openmrs.Obs;
+import org.openmrs.Order;
+import org.openmrs.Patient;
+import org.openmrs.PatientIdentifier;
+import org.openmrs.PersonAddress;
+import org.openmrs.PersonAttribute;
+import org.openmrs.PersonName;
+import org.openmrs.Visit;
+import org.openmrs.module.ehospitalws.dao.PatientDataDAO;
+import org.openmrs.module.ehospitalws.util.PageCursor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public class PatientDataDAOImpl implements PatientDataDAO {
+	
+	private final SessionFactory sessionFactory;
+	
+	@Autowired
+	public PatientDataDAOImpl(SessionFactory sessionFactory) {
+		this.sessionFactory = sessionFactory;
+	}
+	
+	@Override
+	public List<Patient> getPatientsCreatedBetween(Date startDate, Date endDate, PageCursor after, int firstResult,
+	        int maxResults) {
+		String hql = "FROM Patient p WHERE p.voided = false AND p.dateCreated > :startDate AND p.dateCreated < :endDate";
+		if (after != null) {
+			hql += " AND (p.dateCreated > :cursorDate OR (p.dateCreated = :cursorDate AND p.patientId > :cursorId))";
+		}
+		hql += " ORDER BY p.dateCreated, p.patientId";
+		
+		Query<Patient> query = sessionFactory.getCurrentSession().createQuery(hql, Patient.class)
+		        .setParameter("startDate", startDate).setParameter("endDate", endDate);
+		if (after != null) {
+			query.setParameter("cursorDate", after.getDate()).setParameter("cursorId", after.getId());
+		}
+		return query.setFirstResult(firstResult).setMaxResults(maxResults).list();
+	}
+	
+	@Override
+	public long countPatientsCreatedBetween(Date startDate, Date endDate) {
+		return sessionFactory.getCurrentSession()
+		        .createQuery("SELECT COUNT(p) FROM Patient p WHERE p.voided = false AND p.dateCreated > :startDate "
+		                + "AND p.dateCreated < :endDate",
+		            Long.class)
+		        .setParameter("startDate", startDate).setParameter("endDate", endDate).uniqueResult();
+	}
+	
+	@Override
+	public List<PersonName> getPersonNames(Collection<Integer> personIds) {
+		return sessionFactory.getCurrentSession()
+		        .createQuery("FROM PersonName pn WHERE pn.person.personId IN (:personIds) AND pn.voided = false "
+		                + "ORDER BY pn.preferred DESC, pn.personNameId",
+		            PersonName.class)
+		        .setParameterList("personIds", personIds).list();
+	}
+	
+	@Override
+	public List<PersonName> getPersonNamesByPersonUuids(Collection<String> personUuids) {
+		return sessionFactory.getCurrentSession()
+		        .createQuery("FROM PersonName pn JOIN FETCH pn.person p WHERE p.uuid IN (:personUuids) "
+		                + "AND pn.voided = false ORDER BY pn.preferred DESC, pn.personNameId",
+		            PersonName.class)
+		        .setParameterList("personUuids", personUuids).list();
+	}
+	
+	@Override
+	public List<PersonAttribute> getPersonAttributesByPersonUuids(Collection<String> personUuids,
+	        Integer attributeTypeId) {
+		return sessionFactory.getCurrentSession()
+		        .createQuery("FROM PersonAttribute pa JOIN FETCH pa.person p WHERE p.uuid IN (:personUuids) "
+		                + "AND pa.attributeType.personAttributeTypeId = :attributeTypeId AND pa.voided = false "
+		                + "ORDER BY pa.personAttributeId",
+		            PersonAttribute.class)
+		        .setParameterList("personUuids", personUuids).setParameter("attributeTypeId", attributeTypeId).list();
+	}
+	
+	@Override
+	public List<PatientIdentifier> getPatientIdentifiers(Collection<Integer> patientIds) {
+		return sessionFactory.getCurrentSession()
+		        .createQuery("FROM PatientIdentifier pi JOIN FETCH pi.identifierType "
+		                + "WHERE pi.patient.patientId IN (:patientIds) AND pi.voided = false",
+		            PatientIdentifier.class)
+		        .setParameterList("patientIds", patientIds).list();
+	}
+	
+	@Override
+	public List<PersonAddress> getPersonAddresses(Collection<Integer> personIds) {
+		return sessionFactory.getCurrentSession()
+		        .createQuery("FROM PersonAddress pa WHERE pa.person.personId IN (:personIds) AND pa.voided = false",
+		            PersonAddress.class)
+		        .setParameterList("personIds", personIds).list();
+	}
+	
+	@Override
+	public List<PersonAttribute> getPersonAttributes(Collection<Integer> personIds) {
+		return sessionFactory.getCurrentSession()
+		        .createQuery("FROM PersonAttribute pa JOIN FETCH pa.attributeType "
+		                + "WHERE pa.person.personId IN (:personIds) AND pa.voided = false",
+		            PersonAttribute.class)
+		        .setParameterList("personIds", personIds).list();
+	}
+	
+	@Override
+	public List<Visit> getVisitsByPatientIds(Collection<Integer> patientIds) {
+		return sessionFactory.getCurrentSession()
+		        .createQuery("FROM Visit v JOIN FETCH v.visitType WHERE v.patient.patientId IN (:patientIds) "
+		                + "AND v.voided = false",
+		            Visit.class)
+		        .setParameterList("patientIds", patientIds).list();
+	}
+	
+	@Override
+	public List<Obs> getObsForVisits(Collection<Integer> visitIds, Collection<Concept> concepts) {
+		return sessionFactory.getCurrentSession()
+		        .createQuery("SELECT o FROM Obs o JOIN FETCH o.encounter e JOIN FETCH e.visit v "
+		                + "WHERE v.visitId IN (:visitIds) AND o.concept IN (:concepts) AND o.voided = false "
+		                + "ORDER BY o.obsDatetime DESC, o.obsId DESC",
+		            Obs.class)
+		        .setParameterList("visitIds", visitIds).setParameterList("concepts", concepts).list();
+	}
+	
+	@Override
+	public List<Patient> getPatientsByIds(Collection<Integer> patientIds) {
+		return sessionFactory.getCurrentSession()
+		        .createQuery("FROM Patient p WHERE p.patientId IN (:patientIds)", Patient.class)
+		        .setParameterList("patientIds", patientIds).list();
+	}
+	
+	@Override
+	public List<PageCursor> getOpdPatientKeys(Collection<String> visitTypeUuids, String encounterTypeUuid,
+	        Date startDate, Date endDate, PageCursor after, int firstResult, int maxResults) {
+		StringBuilder hql = new StringBuilder("SELECT v.patient.patientId, MIN(v.startDatetime) FROM Visit v");
+		if (encounterTypeUuid != null) {
+			hql.append(", Encounter e");
+		}
+		hql.append(" WHERE v.voided = false AND v.visitType.uuid IN (:visitTypeUuids)")
+		        .append(" AND v.startDatetime >= :startDate AND v.startDatetime <= :endDate");
+		if (encounterTypeUuid != null) {
+			hql.append(" AND e.patient = v.patient AND e.voided = false AND e.encounterType.uuid = :encounterTypeUuid")
+			        .append(" AND e.encounterDatetime > :startDate AND e.encounterDatetime < :endDate");
+		}
+		hql.append(" GROUP BY v.patient.patientId");
+		if (after != null) {
+			hql.append(" HAVING MIN(v.startDatetime) > :cursorDate")
+			        .append(" OR (MIN(v.startDatetime) = :cursorDate AND v.patient.patientId > :cursorId)");
+		}
+		hql.append(" ORDER BY MIN(v.startDatetime), v.patient.patientId");
+		
+		Query<Object[]> query = sessionFactory.getCurrentSession().createQuery(hql.toString(), Object[].class)
+		        .setParameterList("visitTypeUuids", visitTypeUuids).setParameter("startDate", startDate)
+		        .setParameter("endDate", endDate);
+		if (encounterTypeUuid != null) {
+			query.setParameter("encounterTypeUuid", encounterTypeUuid);
+		}
+		if (after != null) {
+			query.setParameter("cursorDate", after.getDate()).setParameter("cursorId", after.getId());
+		}
+		
+		List<PageCursor> keys = new ArrayList<>();
+		for (Object[] row : query.setFirstResult(firstResult).setMaxResults(maxResults).list()) {
+			keys.add(new PageCursor((Date) row[1], (Integer) row[0]));
+		}
+		return keys;
+	}
+	
+	@Override
+	public List<Object[]> countVisitsByType(Collection<String> visitTypeUuids, Date startDate, Date endDate) {
+		return sessionFactory.getCurrentSession()
+		        .createQuery("SELECT v.visitType.uuid, COUNT(v.visitId) FROM Visit v WHERE v.voided = false "
+		                + "AND v.visitType.uuid IN (:visitTypeUuids) AND v.startDatetime >= :startDate "
+		                + "AND v.startDatetime <= :endDate GROUP BY v.visitType.uuid",
+		            Object[].class)
+		        .setParameterList("visitTypeUuids", visitTypeUuids).setParameter("startDate", startDate)
+		        .setParameter("endDate", endDate).list();
+	}
+	
+	@Override
+	public List<Obs> getLatestObsByConcepts(Collection<Integer> personIds, Collection<Concept> concepts) {
+		return sessionFactory.getCurrentSession()
+		        .createQuery("FROM Obs o WHERE o.person.personId IN (:personIds) AND o.concept IN (:concepts) "
+		                + "AND o.voided = false AND o.obsDatetime = (SELECT MAX(latest.obsDatetime) FROM Obs latest "
+		                + "WHERE latest.person = o.person AND latest.concept = o.concept AND latest.voided = false) "
+		                + "ORDER BY o.obsId DESC",
+		            Obs.class)
+		        .setParameterList("personIds", personIds).setParameterList("concepts", concepts).list();
+	}
+	
+	@Override
+	public List<Visit> getLatestVisits(Collection<Integer> patientIds) {
+		return sessionFactory.getCurrentSession()
+		        .createQuery("FROM Visit v WHERE v.patient.patientId IN (:patientIds) AND v.voided = false "
+		                + "AND v.startDatetime = (SELECT MAX(latest.startDatetime) FROM Visit latest "
+		                + "WHERE latest.patient = v.patient AND latest.voided = false) ORDER BY v.visitId DESC",
+		            Visit.class)
+		        .setParameterList("patientIds", patientIds).list();
+	}
+	
+	@Override
+	public <T extends Order> List<T> getOrdersForVisits(Collection<Integer> visitIds, Integer orderTypeId,
+	        Class<T> orderClass) {
+		return sessionFactory.getCurrentSession()
+		        .createQuery("SELECT o FROM " + orderClass.getName() + " o JOIN FETCH o.encounter e JOIN FETCH e.visit v "
+		                + "WHERE v.visitId IN (:visitIds) AND o.orderType.orderTypeId = :orderTypeId AND o.voided = false "
+		                + "ORDER BY o.dateActivated",
+		            orderClass)
+		        .setParameterList("visitIds", visitIds).setParameter("orderTypeId", orderTypeId).list();
+	}
+	
+	@Override
+	public List<Condition> getActiveConditionsForVisits(Collection<Integer> visitIds) {
+		return sessionFactory.getCurrentSession()
+		        .createQuery("SELECT c FROM Condition c JOIN FETCH c.encounter e JOIN FETCH e.visit v "
+		                + "WHERE v.visitId IN (:visitIds) AND c.voided = false AND c.endDate IS NULL "
+		                + "ORDER BY c.dateCreated DESC",
+		            Condition.class)
+		        .setParameterList("visitIds", visitIds).list();
+	}
+	
+	@Override
+	public List<Patient> getPatientsByUuids(Collection<String> patientUuids) {
+		return sessionFactory.getCurrentSession()
+		        .createQuery("FROM Patient p WHERE p.uuid IN (:patientUuids) AND p.voided = false", Patient.class)
+		        .setParameterList("patientUuids", patientUuids).list();
+	}
+	
+	@Override
+	public List<Integer> getPatientIdsWithVisitsBetween(Date startDate, Date endDate) {
+		return sessionFactory.getCurrentSession()
+		        .createQuery("SELECT DISTINCT v.patient.patientId FROM Visit v WHERE v.voided = false "
+		                + "AND v.startDatetime >= :startDate AND v.startDatetime < :endDate ORDER BY v.patient.patientId",
+		            Integer.class)
+		        .setParameter("startDate", startDate).setParameter("endDate", endDate).list();
+	}
+	
+	@Override
+	public List<Integer> getConsentedPatientIdsWithVisitsBetween(Integer consentConceptId, Integer answerConceptId,
+	        Date startDate, Date endDate) {
+		return sessionFactory.getCurrentSession()
+		        .createQuery("SELECT DISTINCT v.patient.patientId FROM Visit v WHERE v.voided = false "
+		                + "AND v.startDatetime >= :startDate AND v.startDatetime < :endDate AND EXISTS ("
+		                + "SELECT o.obsId FROM Obs o WHERE o.person.personId = v.patient.patientId "
+		                + "AND o.concept.conceptId = :conceptId AND o.voided = false "
+		                + "AND o.valueCoded.conceptId = :answerConceptId "
+		                + "AND o.obsDatetime = (SELECT MAX(latest.obsDatetime) FROM Obs latest "
+		                + "WHERE latest.person = o.person AND latest.concept = o.concept AND latest.voided = false)) "
+		                + "ORDER BY v.patient.patientId",
+		            Integer.class)
+		        .setParameter("conceptId", consentConceptId).setParameter("answerConceptId", answerConceptId)
+		        .setParameter("startDate", startDate).setParameter("endDate", endDate).list();
+	}
+	
+	@Override
+	public void evict(Collection<?> entities) {
+		Session session = sessionFactory.getCurrentSession();
+		entities.forEach(session::evict);
+	}
+}
@@ -4,6 +4,7 @@ import org.openmrs.module.ehospitalws.model.LLMMessages;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.Timestamp;
+import java.util.Date;
 import java.util.List;
 
 public interface LLMMessagesService {
@@ -18,5 +19,11 @@ public interface LLMMessagesService {
 	
 	LLMMessages getLatestMessageByPatientUuid(String patientUuid);
 	
-	List<LLMMessages> getAllMessages();
+	/**
+	 * Returns one page of messages, newest first. The range is applied only when both bounds are
+	 * given; {@code createdTo} is exclusive.
+	 */
+	List<LLMMessages> getMessages(Date createdFrom, Date createdTo, int firstResult, int maxResults);
+	
+	long countMessages(Date createdFrom, Date createdTo);
 }
@@ -8,6 +8,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.Timestamp;
+import java.util.Date;
 import java.util.List;
 
 @Service
@@ -48,7 +49,13 @@ public class LLMMessagesServiceImpl extends BaseOpenmrsService implements LLMMes
 	
 	@Override
 	@Transactional(readOnly = true)
-	public List<LLMMessages> getAllMessages() {
-		return llmMessagesDAO.getAllMessages();
+	public List<LLMMessages> getMessages(Date createdFrom, Date createdTo, int firstResult, int maxResults) {
+		return llmMessagesDAO.getMessages(createdFrom, createdTo, firstResult, maxResults);
+	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public long countMessages(Date createdFrom, Date createdTo) {
+		return llmMessagesDAO.countMessages(createdFrom, createdTo);
 	}
 }
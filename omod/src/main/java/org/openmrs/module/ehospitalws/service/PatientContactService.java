@@ -0,0 +1,20 @@
+package org.openmrs.module.ehospitalws.service;
+
+import org.openmrs.module.ehospitalws.web.dto.PatientContact;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface PatientContactService {
+	
+	/**
+	 * @return the patient's contact, or null if no person with a name or phone number has the uuid
+	 */
+	PatientContact getContact(String patientUuid);
+	
+	/**
+	 * Returns the contacts of all the given patients keyed by uuid. Contacts not in the cache are loaded
+	 * with one name query and one phone attribute query, however many uuids are passed in.
+	 */
+	Map<String, PatientContact> getContacts(Collection<String> patientUuids);
+}
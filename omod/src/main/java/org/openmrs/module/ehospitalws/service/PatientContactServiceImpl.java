@@ -0,0 +1,101 @@
+package org.openmrs.module.ehospitalws.service;
+
+import org.openmrs.PersonAttribute;
+import org.openmrs.PersonAttributeType;
+import org.openmrs.PersonName;
+import org.openmrs.api.impl.BaseOpenmrsService;
+import org.openmrs.module.ehospitalws.api.cache.MetadataCache;
+import org.openmrs.module.ehospitalws.dao.PatientDataDAO;
+import org.openmrs.module.ehospitalws.util.ExpiringLruCache;
+import org.openmrs.module.ehospitalws.util.OpenMRSPropertiesUtil;
+import org.openmrs.module.ehospitalws.web.dto.PatientContact;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.openmrs.module.ehospitalws.web.constants.SharedConcepts.PHONE_NUMBER_UUID;
+
+@Service
+public class PatientContactServiceImpl extends BaseOpenmrsService implements PatientContactService {
+	
+	// Shared with PatientContactCacheInvalidationAdvice, which is not a Spring bean
+	private static final ExpiringLruCache<String, PatientContact> CONTACTS = createCache();
+	
+	@Autowired
+	private PatientDataDAO patientDataDAO;
+	
+	public static void evict(String personUuid) {
+		CONTACTS.remove(personUuid);
+	}
+	
+	public static void clearCache() {
+		CONTACTS.clear();
+	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public PatientContact getContact(String patientUuid) {
+		return getContacts(Collections.singletonList(patientUuid)).get(patientUuid);
+	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public Map<String, PatientContact> getContacts(Collection<String> patientUuids) {
+		Map<String, PatientContact> contacts = new HashMap<>();
+		List<String> missing = new ArrayList<>();
+		for (String uuid : new LinkedHashSet<>(patientUuids)) {
+			PatientContact contact = CONTACTS.get(uuid);
+			if (contact != null) {
+				contacts.put(uuid, contact);
+			} else {
+				missing.add(uuid);
+			}
+		}
+		if (missing.isEmpty()) {
+			return contacts;
+		}
+		
+		Map<String, PersonName> names = new HashMap<>();
+		// Preferred names come first, so the first name per person wins
+		for (PersonName name : patientDataDAO.getPersonNamesByPersonUuids(missing)) {
+			names.putIfAbsent(name.getPerson().getUuid(), name);
+		}
+		
+		Map<String, String> phoneNumbers = new HashMap<>();
+		PersonAttributeType phoneAttributeType = MetadataCache.getPersonAttributeType(PHONE_NUMBER_UUID);
+		if (phoneAttributeType != null) {
+			for (PersonAttribute attribute : patientDataDAO.getPersonAttributesByPersonUuids(missing,
+			    phoneAttributeType.getPersonAttributeTypeId())) {
+				phoneNumbers.putIfAbsent(attribute.getPerson().getUuid(), attribute.getValue());
+			}
+		}
+		
+		for (String uuid : missing) {
+			PersonName name = names.get(uuid);
+			String phoneNumber = phoneNumbers.get(uuid);
+			if (name == null && phoneNumber == null) {
+				continue;
+			}
+			PatientContact contact = new PatientContact(uuid, name != null ? name.getGivenName() : null,
+			        name != null ? name.getFamilyName() : null, phoneNumber);
+			CONTACTS.put(uuid, contact);
+			contacts.put(uuid, contact);
+		}
+		return contacts;
+	}
+	
+	private static ExpiringLruCache<String, PatientContact> createCache() {
+		int maxSize = Integer.parseInt(OpenMRSPropertiesUtil.getProperty("patient.contact.cache.max.size", "10000"));
+		long ttlSeconds = Long.parseLong(OpenMRSPropertiesUtil.getProperty("patient.contact.cache.ttl.seconds", "300"));
+		return new ExpiringLruCache<>(maxSize, TimeUnit.SECONDS.toMillis(ttlSeconds));
+	}
+}
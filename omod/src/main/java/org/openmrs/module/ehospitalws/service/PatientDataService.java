@@ -0,0 +1,71 @@
+package org.openmrs.module.ehospitalws.service;
+
+import org.openmrs.Patient;
+import org.openmrs.module.ehospitalws.util.PageCursor;
+import org.openmrs.module.ehospitalws.web.dto.PatientListBatch;
+import org.openmrs.module.ehospitalws.web.dto.PatientSummaryBatch;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+public interface PatientDataService {
+	
+	/**
+	 * Returns one page of non-voided patients created strictly between the two dates, ordered by
+	 * creation date and patient id. When a cursor is given, only patients after it are returned.
+	 */
+	List<Patient> getPatientsCreatedBetween(Date startDate, Date endDate, PageCursor after, int firstResult,
+	        int maxResults);
+	
+	long countPatientsCreatedBetween(Date startDate, Date endDate);
+	
+	/**
+	 * Loads names, identifiers, addresses, attributes, visits and latest-visit diagnoses for all the
+	 * given patients in a fixed number of queries, independent of how many patients are passed in.
+	 */
+	PatientListBatch prefetchPatientListData(Collection<Patient> patients);
+	
+	/**
+	 * Detaches the given entities from the session, so that a long streamed list does not keep every
+	 * row in memory. Everything else in the session, such as the authenticated user, stays attached.
+	 */
+	void evictFromSession(Collection<?> entities);
+	
+	/**
+	 * Loads the given patients, returned in the same order as the ids.
+	 */
+	List<Patient> getPatientsByIds(List<Integer> patientIds);
+	
+	/**
+	 * Returns one page of (earliest visit start, patient id) keys for patients with a visit of the given
+	 * types in the date range, optionally restricted to patients who also had an encounter of the given
+	 * type in that range. Filtering, ordering and paging all happen in the database.
+	 */
+	List<PageCursor> getOpdPatientKeys(List<String> visitTypeUuids, String encounterTypeUuid, Date startDate,
+	        Date endDate, PageCursor after, int firstResult, int maxResults);
+	
+	/**
+	 * Counts visits of the given types within the date range with a grouped count query.
+	 */
+	Map<String, Long> countVisitsByType(List<String> visitTypeUuids, Date startDate, Date endDate);
+	
+	/**
+	 * Loads vitals and the latest visit's diagnoses, test orders and results, medications and conditions
+	 * for all the given patients in a fixed number of queries, independent of how many patients are
+	 * passed in.
+	 */
+	PatientSummaryBatch prefetchPatientSummaryData(Collection<Patient> patients);
+	
+	/**
+	 * Loads the non-voided patients with the given uuids, keyed by uuid.
+	 */
+	Map<String, Patient> getPatientsByUuids(Collection<String> patientUuids);
+	
+	/**
+	 * Returns the ids of patients with a visit in the date range, keeping only those whose latest LLM
+	 * consent answer is Yes when {@code consentedOnly} is set.
+	 */
+	List<Integer> getLlmSummaryPatientIds(Date startDate, Date endDate, boolean consentedOnly);
+}
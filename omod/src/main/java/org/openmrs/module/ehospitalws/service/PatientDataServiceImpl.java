@@ -0,0 +1,259 @@
+package org.openmrs.module.ehospitalws.service;
+
+import org.openmrs.Concept;
+import org.openmrs.Condition;
+import org.openmrs.DrugOrder;
+import org.openmrs.Obs;
+import org.openmrs.Order;
+import org.openmrs.OrderType;
+import org.openmrs.Patient;
+import org.openmrs.PatientIdentifier;
+import org.openmrs.PersonAddress;
+import org.openmrs.PersonAttribute;
+import org.openmrs.PersonName;
+import org.openmrs.Visit;
+import org.openmrs.api.impl.BaseOpenmrsService;
+import org.openmrs.module.ehospitalws.api.cache.MetadataCache;
+import org.openmrs.module.ehospitalws.dao.PatientDataDAO;
+import org.openmrs.module.ehospitalws.util.PageCursor;
+import org.openmrs.module.ehospitalws.web.dto.PatientListBatch;
+import org.openmrs.module.ehospitalws.web.dto.PatientSummaryBatch;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.openmrs.module.ehospitalws.web.constants.Constants.VITAL_CONCEPT_UUIDS;
+import static org.openmrs.module.ehospitalws.web.constants.Constants.getDiagnosisConcepts;
+import static org.openmrs.module.ehospitalws.web.constants.SharedConcepts.DRUG_ORDER_TYPE_UUID;
+import static org.openmrs.module.ehospitalws.web.constants.SharedConcepts.LLM_CONSENT_UUID;
+import static org.openmrs.module.ehospitalws.web.constants.SharedConcepts.TEST_ORDER_TYPE_UUID;
+import static org.openmrs.module.ehospitalws.web.constants.SharedConcepts.YES_UUID;
+
+@Service
+public class PatientDataServiceImpl extends BaseOpenmrsService implements PatientDataService {
+	
+	@Autowired
+	private PatientDataDAO patientDataDAO;
+	
+	@Override
+	@Transactional(readOnly = true)
+	public List<Patient> getPatientsCreatedBetween(Date startDate, Date endDate, PageCursor after, int firstResult,
+	        int maxResults) {
+		return patientDataDAO.getPatientsCreatedBetween(startDate, endDate, after, firstResult, maxResults);
+	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public long countPatientsCreatedBetween(Date startDate, Date endDate) {
+		return patientDataDAO.countPatientsCreatedBetween(startDate, endDate);
+	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public PatientListBatch prefetchPatientListData(Collection<Patient> patients) {
+		PatientListBatch batch = new PatientListBatch();
+		List<Integer> patientIds = patients.stream().map(Patient::getPatientId).distinct().collect(Collectors.toList());
+		if (patientIds.isEmpty()) {
+			return batch;
+		}
+		
+		for (PersonName name : patientDataDAO.getPersonNames(patientIds)) {
+			batch.putName(name.getPerson().getPersonId(), name);
+			batch.addLoadedEntity(name);
+		}
+		for (PatientIdentifier identifier : patientDataDAO.getPatientIdentifiers(patientIds)) {
+			batch.addIdentifier(identifier.getPatient().getPatientId(), identifier);
+			batch.addLoadedEntity(identifier);
+		}
+		for (PersonAddress address : patientDataDAO.getPersonAddresses(patientIds)) {
+			batch.addAddress(address.getPerson().getPersonId(), address);
+			batch.addLoadedEntity(address);
+		}
+		for (PersonAttribute attribute : patientDataDAO.getPersonAttributes(patientIds)) {
+			batch.addAttribute(attribute.getPerson().getPersonId(), attribute);
+			batch.addLoadedEntity(attribute);
+		}
+		for (Visit visit : patientDataDAO.getVisitsByPatientIds(patientIds)) {
+			batch.addVisit(visit.getPatient().getPatientId(), visit);
+			batch.addLoadedEntity(visit);
+		}
+		
+		List<Concept> diagnosisConcepts = getDiagnosisConcepts().stream().filter(Objects::nonNull)
+		        .collect(Collectors.toList());
+		if (batch.getLatestVisits().isEmpty() || diagnosisConcepts.isEmpty()) {
+			return batch;
+		}
+		
+		Map<Integer, Integer> patientIdsByVisitId = new HashMap<>();
+		batch.getLatestVisits().forEach((patientId, visit) -> patientIdsByVisitId.put(visit.getVisitId(), patientId));
+		
+		for (Obs obs : patientDataDAO.getObsForVisits(patientIdsByVisitId.keySet(), diagnosisConcepts)) {
+			String diagnosis = obs.getValueCoded() != null ? obs.getValueCoded().getName().getName() : obs.getValueText();
+			if (diagnosis != null) {
+				batch.addLatestVisitDiagnosis(patientIdsByVisitId.get(obs.getEncounter().getVisit().getVisitId()),
+				    diagnosis);
+			}
+			batch.addLoadedEntity(obs);
+			batch.addLoadedEntity(obs.getEncounter());
+		}
+		
+		return batch;
+	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public void evictFromSession(Collection<?> entities) {
+		patientDataDAO.evict(entities);
+	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public List<Patient> getPatientsByIds(List<Integer> patientIds) {
+		if (patientIds.isEmpty()) {
+			return new ArrayList<>();
+		}
+		
+		Map<Integer, Patient> patientsById = patientDataDAO.getPatientsByIds(patientIds).stream()
+		        .collect(Collectors.toMap(Patient::getPatientId, patient -> patient));
+		return patientIds.stream().map(patientsById::get).filter(Objects::nonNull).collect(Collectors.toList());
+	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public List<PageCursor> getOpdPatientKeys(List<String> visitTypeUuids, String encounterTypeUuid, Date startDate,
+	        Date endDate, PageCursor after, int firstResult, int maxResults) {
+		return patientDataDAO.getOpdPatientKeys(visitTypeUuids, encounterTypeUuid, startDate, endDate, after, firstResult,
+		    maxResults);
+	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public Map<String, Long> countVisitsByType(List<String> visitTypeUuids, Date startDate, Date endDate) {
+		Map<String, Long> visitCounts = new HashMap<>();
+		for (Object[] row : patientDataDAO.countVisitsByType(visitTypeUuids, startDate, endDate)) {
+			visitCounts.put((String) row[0], (Long) row[1]);
+		}
+		return visitCounts;
+	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public PatientSummaryBatch prefetchPatientSummaryData(Collection<Patient> patients) {
+		PatientSummaryBatch batch = new PatientSummaryBatch();
+		List<Integer> patientIds = patients.stream().map(Patient::getPatientId).distinct().collect(Collectors.toList());
+		if (patientIds.isEmpty()) {
+			return batch;
+		}
+		
+		List<Concept> vitalConcepts = VITAL_CONCEPT_UUIDS.stream().map(MetadataCache::getConcept)
+		        .filter(Objects::nonNull).collect(Collectors.toList());
+		if (!vitalConcepts.isEmpty()) {
+			// Ties on obsDatetime come back with the highest obs id first, which wins
+			for (Obs obs : patientDataDAO.getLatestObsByConcepts(patientIds, vitalConcepts)) {
+				batch.putLatestVital(obs.getPerson().getPersonId(), obs.getConcept().getUuid(), obs);
+				batch.addLoadedEntity(obs);
+			}
+		}
+		
+		// Ties on startDatetime come back with the highest visit id first, which wins
+		for (Visit visit : patientDataDAO.getLatestVisits(patientIds)) {
+			batch.putLatestVisit(visit.getPatient().getPatientId(), visit);
+			batch.addLoadedEntity(visit);
+		}
+		Set<Integer> visitIds = batch.getLatestVisits().values().stream().map(Visit::getVisitId)
+		        .collect(Collectors.toSet());
+		if (visitIds.isEmpty()) {
+			return batch;
+		}
+		
+		List<Concept> diagnosisConcepts = getDiagnosisConcepts().stream().filter(Objects::nonNull)
+		        .collect(Collectors.toList());
+		if (!diagnosisConcepts.isEmpty()) {
+			for (Obs obs : patientDataDAO.getObsForVisits(visitIds, diagnosisConcepts)) {
+				String diagnosis = obs.getValueCoded() != null ? obs.getValueCoded().getName().getName()
+				        : obs.getValueText();
+				if (diagnosis != null) {
+					batch.addDiagnosis(obs.getEncounter().getVisit().getVisitId(), diagnosis);
+				}
+				batch.addLoadedEntity(obs);
+				batch.addLoadedEntity(obs.getEncounter());
+			}
+		}
+		
+		OrderType testOrderType = MetadataCache.getOrderType(TEST_ORDER_TYPE_UUID);
+		if (testOrderType != null) {
+			Set<Concept> testConcepts = new HashSet<>();
+			for (Order order : patientDataDAO.getOrdersForVisits(visitIds, testOrderType.getOrderTypeId(), Order.class)) {
+				batch.addTestOrder(order.getEncounter().getVisit().getVisitId(), order);
+				batch.addLoadedEntity(order);
+				batch.addLoadedEntity(order.getEncounter());
+				if (order.getConcept() != null) {
+					testConcepts.add(order.getConcept());
+				}
+			}
+			// Results for every ordered test across the batch come from one obs query
+			if (!testConcepts.isEmpty()) {
+				for (Obs obs : patientDataDAO.getObsForVisits(visitIds, testConcepts)) {
+					batch.addTestResult(obs.getEncounter().getVisit().getVisitId(), obs);
+					batch.addLoadedEntity(obs);
+					batch.addLoadedEntity(obs.getEncounter());
+				}
+			}
+		}
+		
+		OrderType drugOrderType = MetadataCache.getOrderType(DRUG_ORDER_TYPE_UUID);
+		if (drugOrderType != null) {
+			for (DrugOrder order : patientDataDAO.getOrdersForVisits(visitIds, drugOrderType.getOrderTypeId(),
+			    DrugOrder.class)) {
+				batch.addMedication(order.getEncounter().getVisit().getVisitId(), order);
+				batch.addLoadedEntity(order);
+				batch.addLoadedEntity(order.getEncounter());
+			}
+		}
+		
+		for (Condition condition : patientDataDAO.getActiveConditionsForVisits(visitIds)) {
+			batch.addCondition(condition.getEncounter().getVisit().getVisitId(), condition);
+			batch.addLoadedEntity(condition);
+			batch.addLoadedEntity(condition.getEncounter());
+		}
+		
+		return batch;
+	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public Map<String, Patient> getPatientsByUuids(Collection<String> patientUuids) {
+		if (patientUuids.isEmpty()) {
+			return new HashMap<>();
+		}
+		return patientDataDAO.getPatientsByUuids(patientUuids).stream()
+		        .collect(Collectors.toMap(Patient::getUuid, patient -> patient));
+	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public List<Integer> getLlmSummaryPatientIds(Date startDate, Date endDate, boolean consentedOnly) {
+		if (!consentedOnly) {
+			return patientDataDAO.getPatientIdsWithVisitsBetween(startDate, endDate);
+		}
+		
+		Concept consentConcept = MetadataCache.getConcept(LLM_CONSENT_UUID);
+		Concept yesConcept = MetadataCache.getConcept(YES_UUID);
+		if (consentConcept == null || yesConcept == null) {
+			return new ArrayList<>();
+		}
+		return patientDataDAO.getConsentedPatientIdsWithVisitsBetween(consentConcept.getConceptId(),
+		    yesConcept.getConceptId(), startDate, endDate);
+	}
+}
@@ -2,10 +2,12 @@ package org.openmrs.module.ehospitalws.service;
 
 import org.openmrs.module.ehospitalws.dao.ScheduledMessageDAO;
 import org.openmrs.module.ehospitalws.model.ScheduledMessage;
+import org.openmrs.module.ehospitalws.util.PageCursor;
+import org.openmrs.module.ehospitalws.web.dto.ScheduledMessagePage;
 import org.springframework.stereotype.Service;
 
-import java.sql.Date;
 import java.sql.Timestamp;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -18,21 +20,74 @@ public class ScheduledMessageService {
 		this.scheduledMessageDAO = scheduledMessageDAO;
 	}
 	
-	public List<ScheduledMessage> getScheduledAndSentMessages() {
-		return scheduledMessageDAO.getScheduledAndSentMessages();
+	/**
+	 * Returns one page of messages scheduled or sent within the date range, with the total number of
+	 * matching messages. One extra row is read to tell whether another page exists.
+	 */
+	public ScheduledMessagePage getMessages(LocalDate fromDate, LocalDate toDate, List<String> statuses,
+	        String patientUuid, PageCursor after, int size) {
+		List<ScheduledMessage> messages = scheduledMessageDAO.findMessages(fromDate, toDate, statuses, patientUuid, after,
+		    size + 1);
+		
+		ScheduledMessagePage page = new ScheduledMessagePage();
+		page.setTotalCount(scheduledMessageDAO.countMessages(fromDate, toDate, statuses, patientUuid));
+		if (messages.size() > size) {
+			messages = messages.subList(0, size);
+			ScheduledMessage last = messages.get(size - 1);
+			// scheduled_messages.id is an INT column, so the id always fits; toIntExact fails loudly if not
+			page.setNextCursor(new PageCursor(last.getScheduledDate(), Math.toIntExact(last.getId())).toToken());
+		}
+		page.setResults(messages);
+		return page;
 	}
 	
-	public void saveScheduledMessage(String patientUuid, String phoneNumber, String message, Date scheduledDate) {
-		ScheduledMessage scheduledMessage = new ScheduledMessage(null, patientUuid, phoneNumber, message, scheduledDate,
-		        "SCHEDULED", null);
-		scheduledMessageDAO.saveScheduledMessage(scheduledMessage);
+	public void saveScheduledMessages(List<ScheduledMessage> messages, int batchSize) {
+		if (!messages.isEmpty()) {
+			scheduledMessageDAO.saveScheduledMessages(messages, batchSize);
+		}
 	}
 	
-	public List<ScheduledMessage> getMessagesScheduledForTomorrow() {
-		return scheduledMessageDAO.getMessagesScheduledForTomorrow();
+	public int claimMessagesScheduledFor(LocalDate scheduledDate, String claimToken, Timestamp staleBefore, int limit) {
+		return scheduledMessageDAO.claimMessagesScheduledFor(scheduledDate, claimToken,
+		    new Timestamp(System.currentTimeMillis()), staleBefore, limit);
+	}
+	
+	public List<ScheduledMessage> getClaimedMessages(String claimToken) {
+		return scheduledMessageDAO.getClaimedMessages(claimToken);
 	}
 	
 	public void updateMessageStatus(Long messageId, String status, Timestamp sentTimestamp) {
 		scheduledMessageDAO.updateMessageStatus(messageId, status, sentTimestamp);
 	}
+	
+	public void updateMessageStatuses(List<ScheduledMessage> messages, int batchSize) {
+		if (!messages.isEmpty()) {
+			scheduledMessageDAO.updateMessageStatuses(messages, batchSize);
+		}
+	}
+	
+	/**
+	 * Moves SENT messages sent, and DEAD_LETTER messages scheduled, more than {@code retentionDays} ago
+	 * to the history table, {@code batchSize} rows at a time.
+	 * 
+	 * @return the number of messages moved
+	 */
+	public int archiveSentMessages(int retentionDays, int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("batchSize must be at least 1, was " + batchSize);
+		}
+		
+		Timestamp cutoff = Timestamp.valueOf(LocalDate.now().minusDays(retentionDays).atStartOfDay());
+		int archived = 0;
+		int moved;
+		do {
+			moved = scheduledMessageDAO.archiveSentMessages(cutoff, batchSize);
+			archived += moved;
+		} while (moved == batchSize);
+		do {
+			moved = scheduledMessageDAO.archiveDeadLetterMessages(cutoff, batchSize);
+			archived += moved;
+		} while (moved == batchSize);
+		return archived;
+	}
 }
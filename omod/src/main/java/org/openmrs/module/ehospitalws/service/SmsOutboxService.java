@@ -0,0 +1,139 @@
+package org.openmrs.module.ehospitalws.service;
+
+import org.openmrs.module.ehospitalws.dao.SmsOutboxDAO;
+import org.openmrs.module.ehospitalws.model.OutboxMessage;
+import org.openmrs.module.ehospitalws.util.OpenMRSPropertiesUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Retries failed SMS sends with exponential backoff and moves messages that keep failing to
+ * DEAD_LETTER.
+ */
+@Service
+public class SmsOutboxService {
+	
+	private static final Logger log = LoggerFactory.getLogger(SmsOutboxService.class);
+	
+	private static final int MAX_ERROR_LENGTH = 1000;
+	
+	private final SmsOutboxDAO smsOutboxDAO;
+	
+	private final SmsService smsService;
+	
+	private final String nodeName;
+	
+	private final int batchSize;
+	
+	private final int maxAttempts;
+	
+	private final long baseDelaySeconds;
+	
+	private final long maxDelaySeconds;
+	
+	private final long claimTimeoutSeconds;
+	
+	public SmsOutboxService(SmsOutboxDAO smsOutboxDAO, SmsService smsService) {
+		this.smsOutboxDAO = smsOutboxDAO;
+		this.smsService = smsService;
+		this.nodeName = resolveNodeName();
+		this.batchSize = Integer.parseInt(OpenMRSPropertiesUtil.getProperty("sms.outbox.batch.size", "50"));
+		this.maxAttempts = Integer.parseInt(OpenMRSPropertiesUtil.getProperty("sms.outbox.max.attempts", "6"));
+		this.baseDelaySeconds = Long.parseLong(OpenMRSPropertiesUtil.getProperty("sms.outbox.backoff.base.seconds", "60"));
+		this.maxDelaySeconds = Long.parseLong(OpenMRSPropertiesUtil.getProperty("sms.outbox.backoff.max.seconds", "3600"));
+		this.claimTimeoutSeconds = Long
+		        .parseLong(OpenMRSPropertiesUtil.getProperty("sms.outbox.claim.timeout.seconds", "300"));
+	}
+	
+	/**
+	 * @return a token that identifies one claim by this node
+	 */
+	public String newClaimToken() {
+		return nodeName + ":" + UUID.randomUUID();
+	}
+	
+	/**
+	 * @return the cutoff before which a claim is considered abandoned
+	 */
+	public Timestamp staleClaimCutoff() {
+		return new Timestamp(System.currentTimeMillis() - claimTimeoutSeconds * 1000);
+	}
+	
+	public void recordFailure(SmsOutboxDAO.Table table, Long id, String error) {
+		recordFailures(table, Collections.singletonList(id), error);
+	}
+	
+	public void recordFailures(SmsOutboxDAO.Table table, List<Long> ids, String error) {
+		if (ids.isEmpty()) {
+			return;
+		}
+		String truncatedError = error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH)
+		        : error;
+		smsOutboxDAO.recordFailures(table, ids, truncatedError, new Timestamp(System.currentTimeMillis()), maxAttempts,
+		    baseDelaySeconds, maxDelaySeconds, batchSize);
+	}
+	
+	/**
+	 * Claims and resends every message of the table whose next attempt is due, one batch at a time.
+	 * Reminders left claimed by a dispatch that died are requeued first.
+	 *
+	 * @return the number of messages attempted
+	 */
+	public int drain(SmsOutboxDAO.Table table) {
+		if (table == SmsOutboxDAO.Table.SCHEDULED_MESSAGES) {
+			int requeued = smsOutboxDAO.requeueStaleScheduledClaims(new Timestamp(System.currentTimeMillis()),
+			    staleClaimCutoff());
+			if (requeued > 0) {
+				log.warn("Requeued {} reminder(s) left claimed by an interrupted dispatch", requeued);
+			}
+		}
+		
+		int attempted = 0;
+		while (true) {
+			String claimToken = newClaimToken();
+			Timestamp now = new Timestamp(System.currentTimeMillis());
+			if (smsOutboxDAO.claimDueRetries(table, claimToken, now, staleClaimCutoff(), batchSize) == 0) {
+				return attempted;
+			}
+			
+			List<OutboxMessage> messages = smsOutboxDAO.getClaimedRetries(table, claimToken);
+			Set<Long> acceptedIds = smsService.sendBulk(messages);
+			List<Long> sentIds = new ArrayList<>();
+			List<Long> failedIds = new ArrayList<>();
+			for (OutboxMessage message : messages) {
+				if (acceptedIds.contains(message.getId())) {
+					sentIds.add(message.getId());
+				} else {
+					failedIds.add(message.getId());
+					log.warn("Retry {} of SMS {} in {} failed", message.getAttemptCount() + 1, message.getId(), table);
+				}
+			}
+			attempted += messages.size();
+			
+			if (!sentIds.isEmpty()) {
+				smsOutboxDAO.markSent(table, sentIds, new Timestamp(System.currentTimeMillis()), batchSize);
+			}
+			recordFailures(table, failedIds, "Gateway did not accept the message");
+		}
+	}
+	
+	private static String resolveNodeName() {
+		try {
+			String hostName = InetAddress.getLocalHost().getHostName();
+			return hostName.length() > 60 ? hostName.substring(0, 60) : hostName;
+		}
+		catch (UnknownHostException e) {
+			return "unknown-host";
+		}
+	}
+}
@@ -1,52 +1,168 @@
 package org.openmrs.module.ehospitalws.service;
 
+import org.openmrs.module.ehospitalws.gateway.HttpSmsGateway;
+import org.openmrs.module.ehospitalws.gateway.LoggingSmsGateway;
+import org.openmrs.module.ehospitalws.gateway.SmsGateway;
+import org.openmrs.module.ehospitalws.model.OutboxMessage;
 import org.openmrs.module.ehospitalws.util.OpenMRSPropertiesUtil;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
+import org.openmrs.module.ehospitalws.util.TokenBucketRateLimiter;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 
-import java.util.HashMap;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Entry point for all SMS sends. Delegates to the {@link SmsGateway} named by the {@code sms.gateway}
+ * runtime property: {@code http} (the default) or {@code log}. Every send passes a shared rate limit
+ * of {@code sms.rate.per.second} messages per second with bursts of up to {@code sms.rate.burst};
+ * sends over the limit wait for their turn rather than fail.
+ */
 @Component
 public class SmsService {
 	
-	private final String smsApiUrl;
+	private final SmsGateway gateway;
 	
-	private final String apiKey;
+	// Caps the number of requests in flight to the gateway, whichever thread they come from
+	private final Semaphore gatewayPermits;
 	
-	private final String partnerId;
+	// Null when sms.rate.per.second is 0, which turns the limit off
+	private final TokenBucketRateLimiter rateLimiter;
 	
-	private final String shortcode;
+	private final AtomicLong sentCount = new AtomicLong();
+	
+	private final AtomicLong failedCount = new AtomicLong();
+	
+	private final AtomicLong throttledCount = new AtomicLong();
+	
+	private final AtomicLong throttledNanos = new AtomicLong();
 	
 	public SmsService() {
-		this.smsApiUrl = OpenMRSPropertiesUtil.getProperty("sms.api.url", "https://test.sms.com/api/services/sendsms/");
-		this.apiKey = OpenMRSPropertiesUtil.getProperty("sms.api.key", "default-api-key");
-		this.partnerId = OpenMRSPropertiesUtil.getProperty("sms.partner.id", "default-partner-id");
-		this.shortcode = OpenMRSPropertiesUtil.getProperty("sms.shortcode", "default-shortcode");
+		String gatewayName = OpenMRSPropertiesUtil.getProperty("sms.gateway", "http").trim();
+		if ("log".equalsIgnoreCase(gatewayName)) {
+			this.gateway = new LoggingSmsGateway(
+			        Integer.parseInt(OpenMRSPropertiesUtil.getProperty("sms.bulk.max.size", "20")));
+		} else if ("http".equalsIgnoreCase(gatewayName)) {
+			this.gateway = new HttpSmsGateway();
+		} else {
+			throw new IllegalStateException("Unknown sms.gateway: " + gatewayName);
+		}
+		
+		int maxConcurrent = Integer.parseInt(OpenMRSPropertiesUtil.getProperty("sms.gateway.max.concurrent", "4"));
+		this.gatewayPermits = new Semaphore(maxConcurrent, true);
+		
+		double ratePerSecond = Double.parseDouble(OpenMRSPropertiesUtil.getProperty("sms.rate.per.second", "10"));
+		int burst = Integer.parseInt(OpenMRSPropertiesUtil.getProperty("sms.rate.burst", "20"));
+		this.rateLimiter = ratePerSecond > 0 ? new TokenBucketRateLimiter(ratePerSecond, burst) : null;
 	}
 	
 	public boolean sendSms(String phoneNumber, String message) {
-		RestTemplate restTemplate = new RestTemplate();
-		
-		// Create the request body
-		Map<String, String> requestBody = new HashMap<>();
-		requestBody.put("apikey", apiKey);
-		requestBody.put("partnerID", partnerId);
-		requestBody.put("mobile", phoneNumber);
-		requestBody.put("message", message);
-		requestBody.put("shortcode", shortcode);
-		requestBody.put("pass_type", "plain");
-		
 		try {
-			// Send the POST request
-			ResponseEntity<String> response = restTemplate.postForEntity(smsApiUrl, requestBody, String.class);
-			return response.getStatusCode() == HttpStatus.OK;
+			awaitRateLimit(1);
+			gatewayPermits.acquire();
 		}
-		catch (Exception e) {
-			e.printStackTrace();
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 			return false;
 		}
+		
+		try {
+			boolean sent = gateway.send(phoneNumber, message);
+			if (sent) {
+				sentCount.incrementAndGet();
+			} else {
+				failedCount.incrementAndGet();
+			}
+			return sent;
+		}
+		finally {
+			gatewayPermits.release();
+		}
+	}
+	
+	/**
+	 * @return how many messages one {@link #sendBulk(List)} request can carry; 1 when the gateway has
+	 *         no bulk endpoint
+	 */
+	public int getMaxBulkSize() {
+		return gateway.getMaxBulkSize();
+	}
+	
+	/**
+	 * Sends the messages in as few gateway requests as possible, falling back to one request per
+	 * message when the gateway has no bulk endpoint.
+	 *
+	 * @return the ids of the messages the gateway accepted
+	 */
+	public Set<Long> sendBulk(List<OutboxMessage> messages) {
+		int maxBulkSize = gateway.getMaxBulkSize();
+		Set<Long> accepted = new HashSet<>();
+		if (maxBulkSize <= 1) {
+			for (OutboxMessage message : messages) {
+				if (sendSms(message.getPhoneNumber(), message.getMessage())) {
+					accepted.add(message.getId());
+				}
+			}
+			return accepted;
+		}
+		
+		for (int from = 0; from < messages.size(); from += maxBulkSize) {
+			List<OutboxMessage> chunk = messages.subList(from, Math.min(from + maxBulkSize, messages.size()));
+			try {
+				awaitRateLimit(chunk.size());
+				gatewayPermits.acquire();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return accepted;
+			}
+			
+			try {
+				Set<Long> chunkAccepted = gateway.sendBulk(chunk);
+				sentCount.addAndGet(chunkAccepted.size());
+				failedCount.addAndGet(chunk.size() - chunkAccepted.size());
+				accepted.addAll(chunkAccepted);
+			}
+			finally {
+				gatewayPermits.release();
+			}
+		}
+		return accepted;
+	}
+	
+	/**
+	 * @return counts of messages sent, rejected by the gateway and delayed by the rate limit since
+	 *         startup, and the total time spent waiting on the rate limit
+	 */
+	public Map<String, Long> getMetrics() {
+		Map<String, Long> metrics = new LinkedHashMap<>();
+		metrics.put("sent", sentCount.get());
+		metrics.put("failed", failedCount.get());
+		metrics.put("throttled", throttledCount.get());
+		metrics.put("throttledMillis", TimeUnit.NANOSECONDS.toMillis(throttledNanos.get()));
+		return metrics;
+	}
+	
+	private void awaitRateLimit(int permits) throws InterruptedException {
+		if (rateLimiter == null) {
+			return;
+		}
+		long waitedNanos = rateLimiter.acquire(permits);
+		if (waitedNanos > 0) {
+			throttledCount.addAndGet(permits);
+			throttledNanos.addAndGet(waitedNanos);
+		}
+	}
+	
+	@PreDestroy
+	public void close() throws IOException {
+		gateway.close();
 	}
 }
@@ -1,19 +1,14 @@
 package org.openmrs.module.ehospitalws.task;
 
-import org.openmrs.Patient;
-import org.openmrs.Person;
-import org.openmrs.PersonAttribute;
-import org.openmrs.PersonAttributeType;
-import org.openmrs.api.PatientService;
-import org.openmrs.api.PersonService;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.ehospitalws.constants.queries.GetNextAppointmentDate;
+import org.openmrs.module.ehospitalws.model.ScheduledMessage;
 import org.openmrs.module.ehospitalws.service.ScheduledMessageService;
 import org.openmrs.module.ehospitalws.service.SmsService;
 import org.openmrs.module.ehospitalws.util.OpenMRSPropertiesUtil;
+import org.openmrs.module.ehospitalws.web.dto.AppointmentReminderDetails;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
@@ -22,9 +17,14 @@ import javax.persistence.PersistenceContext;
 import java.sql.Date;
 import java.time.*;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Properties;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.openmrs.module.ehospitalws.web.constants.SharedConcepts.PHONE_NUMBER_UUID;
 
 @Component
 public class ScheduledAppointmentReminderTask {
@@ -40,12 +40,6 @@ public class ScheduledAppointmentReminderTask {
 	
 	private final ScheduledMessageService scheduledMessageService;
 	
-	@Autowired
-	private PatientService patientService;
-	
-	@Autowired
-	private PersonService personService;
-	
 	public static final ZoneId LOCAL_TIMEZONE = ZoneId.of("Africa/Nairobi");
 	
 	public ScheduledAppointmentReminderTask(SmsService smsService, GetNextAppointmentDate getNextAppointmentDate,
@@ -69,43 +63,49 @@ public class ScheduledAppointmentReminderTask {
 			
 			LocalDate tomorrow = LocalDate.now(LOCAL_TIMEZONE).plusDays(1);
 			
-			List<Patient> allPatients = patientService.getAllPatients();
+			// One set-based query finds tomorrow's appointments with the names and phone numbers to use
+			List<AppointmentReminderDetails> reminders = getNextAppointmentDate.getAppointmentRemindersForDate(tomorrow,
+			    PHONE_NUMBER_UUID);
 			
-			for (Patient patient : allPatients) {
-				String patientUuid = patient.getUuid();
-				
-				List<LocalDateTime> appointmentsForTomorrow = getNextAppointmentDate.getAppointmentsForDate(patientUuid,
-				    tomorrow);
-				
-				if (appointmentsForTomorrow == null || appointmentsForTomorrow.isEmpty()) {
-					continue;
-				}
-				
-				String formattedTimes = appointmentsForTomorrow.stream().map(utcDateTime -> {
+			String timeOfDay = getTimeOfDay();
+			String tomorrowDateFormatted = tomorrow.format(DateTimeFormatter.ofPattern("dd-MMM-yyyy"));
+			
+			int batchSize = Integer.parseInt(OpenMRSPropertiesUtil.getProperty("sms.reminder.batch.size", "500"));
+			if (batchSize < 1) {
+				log.error("sms.reminder.batch.size must be at least 1, was {}; no reminders scheduled.", batchSize);
+				return;
+			}
+			List<ScheduledMessage> pendingMessages = new ArrayList<>(batchSize);
+			
+			for (AppointmentReminderDetails reminder : reminders) {
+				String formattedTimes = reminder.getAppointmentTimes().stream().map(utcDateTime -> {
 					ZonedDateTime localDateTime = utcDateTime.atZone(ZoneOffset.UTC).withZoneSameInstant(LOCAL_TIMEZONE);
 					return localDateTime.format(DateTimeFormatter.ofPattern("hh:mm a"));
 				}).collect(Collectors.joining(", "));
 				
-				Object[] patientDetails = fetchPatientDetails(patientUuid);
-				if (patientDetails == null || patientDetails[2] == null) {
+				// Missing name parts are left out rather than printed as "null"
+				String patientName = Stream.of(reminder.getGivenName(), reminder.getFamilyName()).filter(Objects::nonNull)
+				        .collect(Collectors.joining(" "));
+				if (patientName.isEmpty()) {
+					log.warn("Skipping reminder for patient {}: no non-voided name found", reminder.getPatientUuid());
 					continue;
 				}
 				
-				String firstName = (String) patientDetails[0];
-				String lastName = (String) patientDetails[1];
-				String phoneNumber = (String) patientDetails[2];
-				
-				String timeOfDay = getTimeOfDay();
-				String tomorrowDateFormatted = tomorrow.format(DateTimeFormatter.ofPattern("dd-MMM-yyyy"));
-				
 				String message = String.format(
-				    "Good %s, %s %s, this is a reminder of your appointment(s) on %s at the following time(s): %s. "
+				    "Good %s, %s, this is a reminder of your appointment(s) on %s at the following time(s): %s. "
 				            + "Location: ST. Josephs Health Center. Please be on time. Stay Healthy.",
-				    timeOfDay, firstName, lastName, tomorrowDateFormatted, formattedTimes);
+				    timeOfDay, patientName, tomorrowDateFormatted, formattedTimes);
 				
-				scheduledMessageService.saveScheduledMessage(patientUuid, phoneNumber, message, Date.valueOf(tomorrow));
-				log.info("Scheduled reminder for patient {} {}", firstName, lastName);
+				pendingMessages.add(new ScheduledMessage(null, reminder.getPatientUuid(), reminder.getPhoneNumber(), message,
+				        Date.valueOf(tomorrow), "SCHEDULED", null));
+				log.info("Scheduled reminder for patient {}", patientName);
+				
+				if (pendingMessages.size() >= batchSize) {
+					scheduledMessageService.saveScheduledMessages(pendingMessages, batchSize);
+					pendingMessages.clear();
+				}
 			}
+			scheduledMessageService.saveScheduledMessages(pendingMessages, batchSize);
 		}
 		catch (Exception e) {
 			log.error("Error occurred while scheduling SMS reminders", e);
@@ -116,26 +116,6 @@ public class ScheduledAppointmentReminderTask {
 		}
 	}
 	
-	private Object[] fetchPatientDetails(String patientUuid) {
-		Person person = personService.getPersonByUuid(patientUuid);
-		if (person == null) {
-			return null;
-		}
-		
-		// Get the phone number from the person attributes
-		PersonAttributeType phoneAttributeType = personService
-		        .getPersonAttributeTypeByUuid("14d4f066-15f5-102d-96e4-000c29c2a5d7");
-		
-		if (phoneAttributeType == null) {
-			return null;
-		}
-		
-		PersonAttribute phoneAttribute = person.getAttribute(phoneAttributeType);
-		String phoneNumber = phoneAttribute != null ? phoneAttribute.getValue() : null;
-		
-		return new Object[] { person.getGivenName(), person.getFamilyName(), phoneNumber };
-	}
-	
 	private String getTimeOfDay() {
 		LocalTime now = LocalTime.now(LOCAL_TIMEZONE);
 		if (now.isBefore(LocalTime.NOON)) {
@@ -0,0 +1,43 @@
+package org.openmrs.module.ehospitalws.task;
+
+import org.openmrs.module.ehospitalws.service.ScheduledMessageService;
+import org.openmrs.module.ehospitalws.util.OpenMRSPropertiesUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ScheduledMessageArchiveTask {
+	
+	private static final Logger log = LoggerFactory.getLogger(ScheduledMessageArchiveTask.class);
+	
+	private final ScheduledMessageService scheduledMessageService;
+	
+	public ScheduledMessageArchiveTask(ScheduledMessageService scheduledMessageService) {
+		this.scheduledMessageService = scheduledMessageService;
+	}
+	
+	/**
+	 * Runs every day at 2 AM EAT to move sent and dead-lettered reminders older than
+	 * {@code sms.archive.retention.days} out of scheduled_messages, keeping the table the dispatch
+	 * queries read small.
+	 */
+	@Scheduled(cron = "0 0 2 * * ?", zone = "Africa/Nairobi")
+	public void archiveSentMessages() {
+		try {
+			int retentionDays = Integer.parseInt(OpenMRSPropertiesUtil.getProperty("sms.archive.retention.days", "30"));
+			int batchSize = Integer.parseInt(OpenMRSPropertiesUtil.getProperty("sms.archive.batch.size", "1000"));
+			if (batchSize < 1) {
+				log.error("sms.archive.batch.size must be at least 1, was {}; skipping archiving.", batchSize);
+				return;
+			}
+			
+			int archived = scheduledMessageService.archiveSentMessages(retentionDays, batchSize);
+			log.info("Archived {} sent or dead-lettered message(s) older than {} day(s).", archived, retentionDays);
+		}
+		catch (Exception e) {
+			log.error("Error archiving sent messages", e);
+		}
+	}
+}
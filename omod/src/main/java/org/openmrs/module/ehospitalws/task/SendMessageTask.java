@@ -1,8 +1,11 @@
 package org.openmrs.module.ehospitalws.task;
 
 import org.openmrs.api.context.Context;
+import org.openmrs.module.ehospitalws.dao.SmsOutboxDAO;
+import org.openmrs.module.ehospitalws.model.OutboxMessage;
 import org.openmrs.module.ehospitalws.model.ScheduledMessage;
 import org.openmrs.module.ehospitalws.service.ScheduledMessageService;
+import org.openmrs.module.ehospitalws.service.SmsOutboxService;
 import org.openmrs.module.ehospitalws.service.SmsService;
 import org.openmrs.module.ehospitalws.util.OpenMRSPropertiesUtil;
 import org.slf4j.Logger;
@@ -11,8 +14,20 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.sql.Timestamp;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 @Component
 public class SendMessageTask {
@@ -23,9 +38,13 @@ public class SendMessageTask {
 	
 	private final ScheduledMessageService scheduledMessageService;
 	
-	public SendMessageTask(SmsService smsService, ScheduledMessageService scheduledMessageService) {
+	private final SmsOutboxService smsOutboxService;
+	
+	public SendMessageTask(SmsService smsService, ScheduledMessageService scheduledMessageService,
+	        SmsOutboxService smsOutboxService) {
 		this.smsService = smsService;
 		this.scheduledMessageService = scheduledMessageService;
+		this.smsOutboxService = smsOutboxService;
 	}
 	
 	/**
@@ -41,33 +60,112 @@ public class SendMessageTask {
 			
 			log.info("SendMessageTask started.");
 			
-			List<ScheduledMessage> messagesToSend = scheduledMessageService.getMessagesScheduledForTomorrow();
-			
-			if (messagesToSend.isEmpty()) {
-				log.info("No messages for tomorrow's appointments found to be sent today.");
-				return;
+			// Messages are claimed batch by batch so that another node running this task skips them
+			int claimLimit = Integer.parseInt(OpenMRSPropertiesUtil.getProperty("sms.dispatch.claim.size", "500"));
+			int workers = Integer.parseInt(OpenMRSPropertiesUtil.getProperty("sms.dispatch.workers", "8"));
+			LocalDate tomorrow = LocalDate.now().plusDays(1);
+			int found = 0;
+			ExecutorService executor = Executors.newFixedThreadPool(workers);
+			try {
+				while (true) {
+					String claimToken = smsOutboxService.newClaimToken();
+					if (scheduledMessageService.claimMessagesScheduledFor(tomorrow, claimToken,
+					    smsOutboxService.staleClaimCutoff(), claimLimit) == 0) {
+						break;
+					}
+					
+					List<ScheduledMessage> messagesToSend = scheduledMessageService.getClaimedMessages(claimToken);
+					found += messagesToSend.size();
+					dispatch(messagesToSend, executor);
+				}
+			}
+			finally {
+				executor.shutdownNow();
 			}
 			
-			log.info("Found {} message(s) to send for tomorrow's appointments.", messagesToSend.size());
-			
-			for (ScheduledMessage message : messagesToSend) {
-				boolean smsSent = smsService.sendSms(message.getPhoneNumber(), message.getMessage());
-				
-				if (smsSent) {
-					scheduledMessageService.updateMessageStatus(message.getId(), "SENT",
-					    Timestamp.valueOf(LocalDateTime.now()));
-					log.info("Successfully sent SMS to {} (Message ID: {})", message.getPhoneNumber(), message.getId());
-				} else {
-					log.warn("Failed to send SMS to {} (Message ID: {})", message.getPhoneNumber(), message.getId());
-				}
+			if (found == 0) {
+				log.info("No messages for tomorrow's appointments found to be sent today.");
+			} else {
+				log.info("Dispatched {} message(s) for tomorrow's appointments.", found);
 			}
 		}
 		catch (Exception e) {
 			log.error("A critical error occurred during the SendMessageTask", e);
-			e.printStackTrace();
 		}
 		finally {
 			Context.closeSession();
 		}
 	}
+	
+	/**
+	 * Sends the messages on the worker pool, one gateway request per chunk of up to
+	 * {@link SmsService#getMaxBulkSize()} messages. Outcomes are collected on the calling thread and
+	 * written in batched updates. The statuses of accepted messages are written even when dispatch stops
+	 * partway, so they are not sent again once their claim is recovered. Failed messages are handed to
+	 * the outbox to be retried.
+	 */
+	private void dispatch(List<ScheduledMessage> messages, ExecutorService executor) throws InterruptedException {
+		int batchSize = Integer.parseInt(OpenMRSPropertiesUtil.getProperty("sms.dispatch.batch.size", "100"));
+		int chunkSize = smsService.getMaxBulkSize();
+		
+		CompletionService<Set<Long>> completionService = new ExecutorCompletionService<>(executor);
+		Map<Future<Set<Long>>, List<ScheduledMessage>> submitted = new HashMap<>();
+		for (int from = 0; from < messages.size(); from += chunkSize) {
+			List<ScheduledMessage> chunk = messages.subList(from, Math.min(from + chunkSize, messages.size()));
+			List<OutboxMessage> outgoing = chunk.stream().map(SendMessageTask::toOutboxMessage)
+			        .collect(Collectors.toList());
+			submitted.put(completionService.submit(() -> smsService.sendBulk(outgoing)), chunk);
+		}
+		
+		List<ScheduledMessage> sentMessages = new ArrayList<>(batchSize);
+		List<Long> failedIds = new ArrayList<>();
+		try {
+			for (int i = 0; i < submitted.size(); i++) {
+				Future<Set<Long>> future = completionService.take();
+				List<ScheduledMessage> chunk = submitted.get(future);
+				Set<Long> acceptedIds;
+				try {
+					acceptedIds = future.get();
+				}
+				catch (ExecutionException e) {
+					log.error("Error sending {} SMS message(s)", chunk.size(), e.getCause());
+					smsOutboxService.recordFailures(SmsOutboxDAO.Table.SCHEDULED_MESSAGES,
+					    chunk.stream().map(ScheduledMessage::getId).collect(Collectors.toList()),
+					    String.valueOf(e.getCause()));
+					continue;
+				}
+				
+				Timestamp sentTimestamp = Timestamp.valueOf(LocalDateTime.now());
+				for (ScheduledMessage message : chunk) {
+					if (acceptedIds.contains(message.getId())) {
+						message.setStatus("SENT");
+						message.setSentTimestamp(sentTimestamp);
+						sentMessages.add(message);
+						log.info("Successfully sent SMS to {} (Message ID: {})", message.getPhoneNumber(), message.getId());
+					} else {
+						failedIds.add(message.getId());
+						log.warn("Failed to send SMS to {} (Message ID: {})", message.getPhoneNumber(), message.getId());
+					}
+				}
+				
+				if (sentMessages.size() >= batchSize) {
+					scheduledMessageService.updateMessageStatuses(sentMessages, batchSize);
+					sentMessages.clear();
+				}
+			}
+		}
+		finally {
+			scheduledMessageService.updateMessageStatuses(sentMessages, batchSize);
+		}
+		smsOutboxService.recordFailures(SmsOutboxDAO.Table.SCHEDULED_MESSAGES, failedIds,
+		    "Gateway did not accept the message");
+	}
+	
+	private static OutboxMessage toOutboxMessage(ScheduledMessage message) {
+		OutboxMessage outboxMessage = new OutboxMessage();
+		outboxMessage.setId(message.getId());
+		outboxMessage.setPhoneNumber(message.getPhoneNumber());
+		outboxMessage.setMessage(message.getMessage());
+		return outboxMessage;
+	}
 }
@@ -0,0 +1,39 @@
+package org.openmrs.module.ehospitalws.task;
+
+import org.openmrs.module.ehospitalws.dao.SmsOutboxDAO;
+import org.openmrs.module.ehospitalws.service.SmsOutboxService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class SmsOutboxTask {
+	
+	private static final Logger log = LoggerFactory.getLogger(SmsOutboxTask.class);
+	
+	private final SmsOutboxService smsOutboxService;
+	
+	public SmsOutboxTask(SmsOutboxService smsOutboxService) {
+		this.smsOutboxService = smsOutboxService;
+	}
+	
+	/**
+	 * Runs every minute to resend reminder and LLM messages whose next attempt is due. Only JDBC and
+	 * the SMS gateway are used, so no OpenMRS session is opened.
+	 */
+	@Scheduled(fixedDelay = 60000, initialDelay = 60000)
+	public void retryFailedMessages() {
+		for (SmsOutboxDAO.Table table : SmsOutboxDAO.Table.values()) {
+			try {
+				int attempted = smsOutboxService.drain(table);
+				if (attempted > 0) {
+					log.info("Retried {} SMS message(s) from {}", attempted, table);
+				}
+			}
+			catch (Exception e) {
+				log.error("Error retrying SMS messages from {}", table, e);
+			}
+		}
+	}
+}
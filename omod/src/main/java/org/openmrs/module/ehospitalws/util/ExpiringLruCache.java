@@ -0,0 +1,64 @@
+package org.openmrs.module.ehospitalws.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small thread-safe cache that holds at most {@code maxSize} entries, evicting the least recently
+ * used one first, and drops entries older than {@code ttlMillis} when they are next read.
+ */
+public class ExpiringLruCache<K, V> {
+	
+	private final long ttlMillis;
+	
+	private final LinkedHashMap<K, Entry<V>> entries;
+	
+	public ExpiringLruCache(final int maxSize, long ttlMillis) {
+		this.ttlMillis = ttlMillis;
+		this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+	
+	/**
+	 * @return the cached value, or null if there is none or it has expired
+	 */
+	public synchronized V get(K key) {
+		Entry<V> entry = entries.get(key);
+		if (entry == null) {
+			return null;
+		}
+		if (System.currentTimeMillis() - entry.createdAt > ttlMillis) {
+			entries.remove(key);
+			return null;
+		}
+		return entry.value;
+	}
+	
+	public synchronized void put(K key, V value) {
+		entries.put(key, new Entry<>(value));
+	}
+	
+	public synchronized void remove(K key) {
+		entries.remove(key);
+	}
+	
+	public synchronized void clear() {
+		entries.clear();
+	}
+	
+	private static class Entry<V> {
+		
+		private final V value;
+		
+		private final long createdAt = System.currentTimeMillis();
+		
+		private Entry(V value) {
+			this.value = value;
+		}
+	}
+}
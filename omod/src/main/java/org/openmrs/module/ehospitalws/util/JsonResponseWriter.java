@@ -0,0 +1,51 @@
+package org.openmrs.module.ehospitalws.util;
+
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.ObjectMapper;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes JSON trees and DTOs straight to the response through one shared mapper, instead of
+ * serializing them to a String first and letting Spring copy that String into the body.
+ */
+public class JsonResponseWriter {
+	
+	public static final String JSON_CONTENT_TYPE = "application/json";
+	
+	public static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+	
+	private static final ObjectMapper OBJECT_MAPPER = createMapper();
+	
+	private JsonResponseWriter() {
+	}
+	
+	/**
+	 * Writes the value as the JSON body of the response. The response stream is flushed but left open
+	 * for the container to close.
+	 */
+	public static void write(HttpServletResponse response, Object value) throws IOException {
+		response.setContentType(JSON_CONTENT_TYPE);
+		response.setCharacterEncoding("UTF-8");
+		JsonGenerator generator = createGenerator(response.getOutputStream());
+		OBJECT_MAPPER.writeValue(generator, value);
+		generator.flush();
+	}
+	
+	/**
+	 * Returns a UTF-8 generator over the stream for callers that write a document piece by piece.
+	 * Closing the generator does not close the stream.
+	 */
+	public static JsonGenerator createGenerator(OutputStream outputStream) throws IOException {
+		return OBJECT_MAPPER.getJsonFactory().createJsonGenerator(outputStream, JsonEncoding.UTF8);
+	}
+	
+	private static ObjectMapper createMapper() {
+		ObjectMapper mapper = new ObjectMapper();
+		mapper.getJsonFactory().configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+		return mapper;
+	}
+}
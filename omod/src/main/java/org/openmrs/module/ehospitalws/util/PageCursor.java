@@ -0,0 +1,59 @@
+package org.openmrs.module.ehospitalws.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Position in a list ordered by (date, id), exchanged with clients as an opaque token so that the
+ * next page can be fetched with a keyset condition instead of an offset.
+ */
+public class PageCursor {
+	
+	private final Date date;
+	
+	private final Integer id;
+	
+	public PageCursor(Date date, Integer id) {
+		this.date = date;
+		this.id = id;
+	}
+	
+	public Date getDate() {
+		return date;
+	}
+	
+	public Integer getId() {
+		return id;
+	}
+	
+	public String toToken() {
+		String raw = date.getTime() + ":" + id;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	/**
+	 * Parses a token produced by {@link #toToken()}.
+	 *
+	 * @param token The opaque cursor received from the client.
+	 * @return The decoded cursor, or null when the token is blank.
+	 * @throws IllegalArgumentException if the token is malformed.
+	 */
+	public static PageCursor fromToken(String token) {
+		if (token == null || token.trim().isEmpty()) {
+			return null;
+		}
+		
+		try {
+			String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+			String[] parts = raw.split(":");
+			if (parts.length != 2) {
+				throw new IllegalArgumentException("Invalid cursor: " + token);
+			}
+			return new PageCursor(new Date(Long.parseLong(parts[0])), Integer.valueOf(parts[1]));
+		}
+		catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Invalid cursor: " + token, e);
+		}
+	}
+}
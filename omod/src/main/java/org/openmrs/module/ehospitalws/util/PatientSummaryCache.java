@@ -0,0 +1,41 @@
+package org.openmrs.module.ehospitalws.util;
+
+import org.codehaus.jackson.node.ObjectNode;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generated LLM patient summaries keyed by patient uuid. Entries are evicted by
+ * {@link org.openmrs.module.ehospitalws.advice.PatientSummaryCacheInvalidationAdvice} when the
+ * patient's clinical data changes, and otherwise expire after a while so that age stays current.
+ * Cached summaries are shared, so callers must not modify them.
+ */
+public class PatientSummaryCache {
+	
+	private static final ExpiringLruCache<String, ObjectNode> SUMMARIES = createCache();
+	
+	private PatientSummaryCache() {
+	}
+	
+	public static ObjectNode get(String patientUuid) {
+		return SUMMARIES.get(patientUuid);
+	}
+	
+	public static void put(String patientUuid, ObjectNode summary) {
+		SUMMARIES.put(patientUuid, summary);
+	}
+	
+	public static void evict(String patientUuid) {
+		SUMMARIES.remove(patientUuid);
+	}
+	
+	public static void clear() {
+		SUMMARIES.clear();
+	}
+	
+	private static ExpiringLruCache<String, ObjectNode> createCache() {
+		int maxSize = Integer.parseInt(OpenMRSPropertiesUtil.getProperty("llm.summary.cache.max.size", "1000"));
+		long ttlSeconds = Long.parseLong(OpenMRSPropertiesUtil.getProperty("llm.summary.cache.ttl.seconds", "900"));
+		return new ExpiringLruCache<>(maxSize, TimeUnit.SECONDS.toMillis(ttlSeconds));
+	}
+}
@@ -0,0 +1,70 @@
+package org.openmrs.module.ehospitalws.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket that refills at a fixed rate up to a burst size. Callers that find the bucket empty
+ * are not rejected: each one reserves the next free tokens and waits until they are due, so callers
+ * queue in arrival order.
+ */
+public class TokenBucketRateLimiter {
+	
+	private final double nanosPerPermit;
+	
+	private final double maxPermits;
+	
+	private final LongSupplier nanoClock;
+	
+	private double storedPermits;
+	
+	// The moment the next reservation can start; ahead of the clock while callers are queued
+	private long nextFreeNanos;
+	
+	public TokenBucketRateLimiter(double permitsPerSecond, int burst) {
+		this(permitsPerSecond, burst, System::nanoTime);
+	}
+	
+	TokenBucketRateLimiter(double permitsPerSecond, int burst, LongSupplier nanoClock) {
+		if (permitsPerSecond <= 0 || burst < 1) {
+			throw new IllegalArgumentException("Rate and burst must be positive");
+		}
+		this.nanosPerPermit = TimeUnit.SECONDS.toNanos(1) / permitsPerSecond;
+		this.maxPermits = burst;
+		this.nanoClock = nanoClock;
+		this.storedPermits = burst;
+		this.nextFreeNanos = nanoClock.getAsLong();
+	}
+	
+	/**
+	 * Blocks until {@code permits} tokens are available and takes them.
+	 *
+	 * @return the time spent waiting, in nanoseconds
+	 */
+	public long acquire(int permits) throws InterruptedException {
+		long waitNanos = reserve(permits);
+		if (waitNanos > 0) {
+			TimeUnit.NANOSECONDS.sleep(waitNanos);
+		}
+		return waitNanos;
+	}
+	
+	/**
+	 * Takes {@code permits} tokens, reserving tokens that have not been refilled yet if the bucket
+	 * does not hold enough.
+	 *
+	 * @return how long the caller must wait until all its tokens are due, in nanoseconds
+	 */
+	synchronized long reserve(int permits) {
+		long now = nanoClock.getAsLong();
+		if (now > nextFreeNanos) {
+			storedPermits = Math.min(maxPermits, storedPermits + (now - nextFreeNanos) / nanosPerPermit);
+			nextFreeNanos = now;
+		}
+		
+		double fromBucket = Math.min(permits, storedPermits);
+		storedPermits -= fromBucket;
+		nextFreeNanos += (long) Math.ceil((permits - fromBucket) * nanosPerPermit);
+		return nextFreeNanos - now;
+	}
+}
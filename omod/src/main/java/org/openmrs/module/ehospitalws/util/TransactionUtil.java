@@ -0,0 +1,29 @@
+package org.openmrs.module.ehospitalws.util;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class TransactionUtil {
+	
+	private TransactionUtil() {
+	}
+	
+	/**
+	 * Runs the action once the current transaction has committed, or right away when there is no
+	 * transaction. Cache evictions go through here, so that a read made before the commit cannot put the
+	 * old data back into the cache after the eviction.
+	 */
+	public static void runAfterCommit(Runnable action) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			action.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			
+			@Override
+			public void afterCommit() {
+				action.run();
+			}
+		});
+	}
+}
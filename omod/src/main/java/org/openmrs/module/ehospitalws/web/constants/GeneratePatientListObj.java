@@ -1,12 +1,19 @@
 package org.openmrs.module.ehospitalws.web.constants;
 
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonNode;
 import org.codehaus.jackson.node.ArrayNode;
 import org.codehaus.jackson.node.JsonNodeFactory;
 import org.codehaus.jackson.node.ObjectNode;
 import org.openmrs.Patient;
+import org.openmrs.module.ehospitalws.service.PatientDataService;
+import org.openmrs.module.ehospitalws.util.JsonResponseWriter;
 import org.openmrs.module.ehospitalws.web.controller.eHospitalWebServicesController;
+import org.openmrs.module.ehospitalws.web.dto.PatientListBatch;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.*;
 
 @Component
@@ -16,20 +23,27 @@ public class GeneratePatientListObj {
 	
 	private final GenerateSummary generateSummary;
 	
-	public GeneratePatientListObj(GeneratePatientObject generatePatientObject, GenerateSummary generateSummary) {
+	private final PatientDataService patientDataService;
+	
+	/** Number of patients whose row data is prefetched at a time while streaming */
+	private static final int STREAM_CHUNK_SIZE = 500;
+	
+	public GeneratePatientListObj(GeneratePatientObject generatePatientObject, GenerateSummary generateSummary,
+	    PatientDataService patientDataService) {
 		this.generatePatientObject = generatePatientObject;
 		this.generateSummary = generateSummary;
+		this.patientDataService = patientDataService;
 	}
 	
 	/**
 	 * Generates a summary of patient data within a specified date range, grouped by year, month, and
 	 * week.
-	 * 
+	 *
 	 * @param allPatients A set of all patients to be considered for the summary.
 	 * @param startDate The start date of the range for which to generate the summary.
 	 * @param endDate The end date of the range for which to generate the summary.
 	 * @param filterCategory The category to filter patients.
-	 * @return A JSON string representing the summary of patient data.
+	 * @return {@code allPatientsObj} with the results and summary added.
 	 */
 	public Object generatePatientListObj(HashSet<Patient> allPatients, Date startDate, Date endDate,
 	        Constants.filterCategory filterCategory, ObjectNode allPatientsObj) {
@@ -42,8 +56,12 @@ public class GeneratePatientListObj {
 		Calendar endCal = Calendar.getInstance();
 		endCal.setTime(endDate);
 		
+		// Prefetch row data for the whole page so the query count does not grow with the page size
+		PatientListBatch batch = patientDataService.prefetchPatientListData(allPatients);
+		
 		for (Patient patient : allPatients) {
-			ObjectNode patientObj = generatePatientObject.generatePatientObject(startDate, endDate, filterCategory, patient);
+			ObjectNode patientObj = generatePatientObject.generatePatientObject(startDate, endDate, filterCategory, patient,
+			    batch);
 			if (patientObj != null) {
 				patientList.add(patientObj);
 				
@@ -56,6 +74,86 @@ public class GeneratePatientListObj {
 			}
 		}
 		
+		allPatientsObj.put("totalPatients", allPatients.size());
+		allPatientsObj.put("results", patientList);
+		allPatientsObj.put("summary", generateGroupingObj(patientDates));
+		
+		return allPatientsObj;
+	}
+	
+	/**
+	 * Streaming variant of
+	 * {@link #generatePatientListObj(HashSet, Date, Date, Constants.filterCategory, ObjectNode)}. The
+	 * fields already in {@code allPatientsObj} are written first, then each patient row is written to
+	 * the output stream as soon as it is built, and the summary goes out last. Patients are loaded and
+	 * their row data prefetched one chunk at a time, and the session is cleared after each chunk, so
+	 * neither the rows nor the loaded entities grow with the page size.
+	 *
+	 * @param patientIds The ordered ids of the patients of the page.
+	 * @param startDate The start date of the range for which to generate the summary.
+	 * @param endDate The end date of the range for which to generate the summary.
+	 * @param filterCategory The category to filter patients.
+	 * @param allPatientsObj Header fields written ahead of the results.
+	 * @param outputStream The stream the JSON document is written to.
+	 */
+	public void streamPatientListObj(List<Integer> patientIds, Date startDate, Date endDate,
+	        Constants.filterCategory filterCategory, ObjectNode allPatientsObj, OutputStream outputStream)
+	        throws IOException {
+		
+		List<Date> patientDates = new ArrayList<>();
+		Calendar startCal = Calendar.getInstance();
+		startCal.setTime(startDate);
+		Calendar endCal = Calendar.getInstance();
+		endCal.setTime(endDate);
+		
+		JsonGenerator generator = JsonResponseWriter.createGenerator(outputStream);
+		generator.writeStartObject();
+		
+		Iterator<Map.Entry<String, JsonNode>> headerFields = allPatientsObj.getFields();
+		while (headerFields.hasNext()) {
+			Map.Entry<String, JsonNode> field = headerFields.next();
+			generator.writeFieldName(field.getKey());
+			generator.writeTree(field.getValue());
+		}
+		
+		generator.writeArrayFieldStart("results");
+		int totalPatients = 0;
+		for (int from = 0; from < patientIds.size(); from += STREAM_CHUNK_SIZE) {
+			List<Patient> chunk = patientDataService
+			        .getPatientsByIds(patientIds.subList(from, Math.min(from + STREAM_CHUNK_SIZE, patientIds.size())));
+			PatientListBatch batch = patientDataService.prefetchPatientListData(chunk);
+			totalPatients += chunk.size();
+			
+			for (Patient patient : chunk) {
+				ObjectNode patientObj = generatePatientObject.generatePatientObject(startDate, endDate, filterCategory,
+				    patient, batch);
+				if (patientObj != null) {
+					generator.writeTree(patientObj);
+					
+					Calendar patientCal = Calendar.getInstance();
+					patientCal.setTime(patient.getDateCreated());
+					
+					if (!patientCal.before(startCal) && !patientCal.after(endCal)) {
+						patientDates.add(patient.getDateCreated());
+					}
+				}
+			}
+			generator.flush();
+			
+			// Nothing loaded for this chunk is needed again, so keep the session from growing with the page
+			patientDataService.evictFromSession(chunk);
+			patientDataService.evictFromSession(batch.getLoadedEntities());
+		}
+		generator.writeEndArray();
+		
+		generator.writeNumberField("totalPatients", totalPatients);
+		generator.writeFieldName("summary");
+		generator.writeTree(generateGroupingObj(patientDates));
+		generator.writeEndObject();
+		generator.flush();
+	}
+	
+	private ObjectNode generateGroupingObj(List<Date> patientDates) {
 		Map<String, Map<String, Integer>> summary = generateSummary.generateSummary(patientDates);
 		
 		ObjectNode groupingObj = JsonNodeFactory.instance.objectNode();
@@ -71,11 +169,7 @@ public class GeneratePatientListObj {
 		groupingObj.put("groupMonth", groupMonth);
 		groupingObj.put("groupWeek", groupWeek);
 		
-		allPatientsObj.put("totalPatients", allPatients.size());
-		allPatientsObj.put("results", patientList);
-		allPatientsObj.put("summary", groupingObj);
-		
-		return allPatientsObj.toString();
+		return groupingObj;
 	}
 	
 	public Object generatePatientListObj(HashSet<Patient> allPatients, Date endDate) {
@@ -6,7 +6,10 @@ import org.codehaus.jackson.node.ObjectNode;
 import org.openmrs.Patient;
 import org.openmrs.PatientIdentifier;
 import org.openmrs.PersonAddress;
+import org.openmrs.PersonAttribute;
+import org.openmrs.PersonName;
 import org.openmrs.module.ehospitalws.web.controller.eHospitalWebServicesController;
+import org.openmrs.module.ehospitalws.web.dto.PatientListBatch;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
@@ -15,25 +18,24 @@ import java.util.Date;
 import java.util.List;
 
 import static org.openmrs.module.ehospitalws.web.constants.Constants.*;
+import static org.openmrs.module.ehospitalws.web.constants.SharedConcepts.*;
 
 @Component
 public class GeneratePatientObject {
 	
 	public static ObjectNode generatePatientObject(Date startDate, Date endDate, filterCategory filterCategory,
-	        Patient patient) {
+	        Patient patient, PatientListBatch batch) {
 		ObjectNode patientObj = JsonNodeFactory.instance.objectNode();
-		String contact = patient.getAttribute("Telephone Number") != null
-		        ? String.valueOf(patient.getAttribute("Telephone Number"))
-		        : "";
-		String alternateContact = patient.getAttribute("Contact Number") != null
-		        ? String.valueOf(patient.getAttribute("Contact Number"))
-		        : "";
+		PersonAttribute telephone = batch.getAttribute(patient, "Telephone Number");
+		PersonAttribute alternateTelephone = batch.getAttribute(patient, "Contact Number");
+		String contact = telephone != null ? String.valueOf(telephone) : "";
+		String alternateContact = alternateTelephone != null ? String.valueOf(alternateTelephone) : "";
 		Date birthdate = patient.getBirthdate();
 		Date currentDate = new Date();
 		long age = (currentDate.getTime() - birthdate.getTime()) / (1000L * 60 * 60 * 24 * 365);
 		
 		ArrayNode identifiersArray = JsonNodeFactory.instance.arrayNode();
-		for (PatientIdentifier identifier : patient.getIdentifiers()) {
+		for (PatientIdentifier identifier : batch.getIdentifiers(patient)) {
 			ObjectNode identifierObj = JsonNodeFactory.instance.objectNode();
 			identifierObj.put("identifier", identifier.getIdentifier());
 			identifierObj.put("identifierType", identifier.getIdentifierType().getName());
@@ -43,7 +45,7 @@ public class GeneratePatientObject {
 		String county = "";
 		String subCounty = "";
 		String ward = "";
-		for (PersonAddress address : patient.getAddresses()) {
+		for (PersonAddress address : batch.getAddresses(patient)) {
 			if (address.getCountyDistrict() != null) {
 				county = address.getCountyDistrict();
 			}
@@ -56,10 +58,14 @@ public class GeneratePatientObject {
 		}
 		String fullAddress = "County: " + county + ", Sub County: " + subCounty + ", Ward: " + ward;
 		
-		String diagnoses = getDiagnosesWithinPeriod(patient, startDate, endDate);
+		String diagnoses = getDiagnosesWithinPeriod(batch.getLatestVisit(patient), batch.getLatestVisitDiagnoses(patient),
+		    startDate, endDate);
+		boolean opdVisit = hasVisitOfType(batch.getVisits(patient), OPD_VISIT_UUID, startDate, endDate);
+		boolean opdRevisit = hasVisitOfType(batch.getVisits(patient), OPD_REVISIT_UUID, startDate, endDate);
+		PersonName personName = batch.getName(patient);
 		
 		patientObj.put("uuid", patient.getUuid());
-		patientObj.put("name", patient.getPersonName() != null ? patient.getPersonName().toString() : "");
+		patientObj.put("name", personName != null ? personName.toString() : "");
 		patientObj.put("sex", patient.getGender());
 		patientObj.put("age", age);
 		patientObj.put("identifiers", identifiersArray);
@@ -71,8 +77,8 @@ public class GeneratePatientObject {
 		patientObj.put("timeRegistered",
 		    timeFormatter.format(patient.getPersonDateCreated().toInstant().atZone(ZoneId.systemDefault())));
 		patientObj.put("diagnosis", diagnoses);
-		patientObj.put("OPD Visits", isOpdVisit(patient, startDate, endDate));
-		patientObj.put("OPD Revisit", isOpdRevisit(patient, startDate, endDate));
+		patientObj.put("OPD Visits", opdVisit);
+		patientObj.put("OPD Revisit", opdRevisit);
 		
 		// check filter category and filter patients based on the category
 		if (filterCategory != null) {
@@ -83,12 +89,12 @@ public class GeneratePatientObject {
 					}
 					break;
 				case OPD_VISITS:
-					if (isOpdVisit(patient, startDate, endDate)) {
+					if (opdVisit) {
 						return patientObj;
 					}
 					break;
 				case OPD_REVISITS:
-					if (isOpdRevisit(patient, startDate, endDate)) {
+					if (opdRevisit) {
 						return patientObj;
 					}
 					break;
@@ -48,5 +48,11 @@ public class SharedConcepts {
 	
 	public static final String LLM_CONSENT_UUID = "b71c3f8e-68c2-4285-bb94-95b9f86ff51a";
 	
+	public static final String YES_UUID = "1065AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA";
+	
 	public static final String PATIENT_TYPE_UUID = "d32ea3a0-017c-473f-99f4-fde9aa9ec6ce";
+	
+	public static final String TEST_ORDER_TYPE_UUID = "52a447d3-a64a-11e3-9aeb-50e549534c5e";
+	
+	public static final String DRUG_ORDER_TYPE_UUID = "131168f4-15f5-102d-96e4-000c29c2a5d7";
 }
@@ -6,6 +6,7 @@ import org.codehaus.jackson.node.ObjectNode;
 import org.openmrs.*;
 import org.openmrs.api.VisitService;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.ehospitalws.api.cache.MetadataCache;
 import org.openmrs.module.ehospitalws.web.dto.PatientObservations;
 import org.openmrs.parameter.EncounterSearchCriteria;
 import org.springframework.http.HttpHeaders;
@@ -43,7 +44,7 @@ public class SharedConstants {
 	public static List<Encounter> getEncountersByEncounterTypes(List<String> encounterTypeUuids, Date startDate,
 	        Date endDate) {
 		List<EncounterType> encounterTypes = encounterTypeUuids.stream()
-		        .map(uuid -> Context.getEncounterService().getEncounterTypeByUuid(uuid)).collect(Collectors.toList());
+		        .map(MetadataCache::getEncounterType).collect(Collectors.toList());
 		
 		EncounterSearchCriteria encounterCriteria = new EncounterSearchCriteria(null, null, startDate, endDate, null, null,
 		        encounterTypes, null, null, null, false);
@@ -57,8 +58,7 @@ public class SharedConstants {
 	 * @return A list of concepts corresponding to the given UUIDs.
 	 */
 	public static List<Concept> getConceptsByUuids(List<String> conceptUuids) {
-		return conceptUuids.stream().map(uuid -> Context.getConceptService().getConceptByUuid(uuid))
-		        .collect(Collectors.toList());
+		return conceptUuids.stream().map(MetadataCache::getConcept).collect(Collectors.toList());
 	}
 	
 	public static Map<String, Object> createResultMap(String key, int value) {
@@ -233,7 +233,7 @@ public class SharedConstants {
 		List<Encounter> encountersInVisit = new ArrayList<>(activeVisit.getEncounters());
 		
 		List<Obs> obsList = Context.getObsService().getObservations(Collections.singletonList(patient.getPerson()),
-		    encountersInVisit, Collections.singletonList(Context.getConceptService().getConceptByUuid(conceptUuid)), null,
+		    encountersInVisit, Collections.singletonList(MetadataCache.getConcept(conceptUuid)), null,
 		    null, null, null, null, null, null, null, false);
 		
 		if (!obsList.isEmpty()) {
@@ -7,6 +7,7 @@ import org.codehaus.jackson.node.ObjectNode;
 import org.openmrs.Patient;
 import org.openmrs.Visit;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.ehospitalws.util.JsonResponseWriter;
 import org.openmrs.module.webservices.rest.web.RestConstants;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -18,6 +19,8 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -38,7 +41,8 @@ public class FormsController {
 	@RequestMapping(method = RequestMethod.GET, value = "/forms")
 	// gets all visit forms for a patient
 	@ResponseBody
-	public Object getAllAvailableFormsForVisit(HttpServletRequest request, @RequestParam("patientUuid") String patientUuid) {
+	public Object getAllAvailableFormsForVisit(HttpServletRequest request, @RequestParam("patientUuid") String patientUuid,
+	        HttpServletResponse response) throws IOException {
 		if (StringUtils.isBlank(patientUuid)) {
 			return new ResponseEntity<Object>("You must specify patientUuid in the request!", new HttpHeaders(),
 			        HttpStatus.BAD_REQUEST);
@@ -101,6 +105,7 @@ public class FormsController {
 		
 		allFormsObj.put("results", formList);
 		
-		return allFormsObj.toString();
+		JsonResponseWriter.write(response, allFormsObj);
+		return null;
 	}
 }
@@ -1,16 +1,24 @@
 package org.openmrs.module.ehospitalws.web.controller;
 
-import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.JsonGenerator;
 import org.codehaus.jackson.node.JsonNodeFactory;
 import org.codehaus.jackson.node.ObjectNode;
 import org.openmrs.*;
 import org.openmrs.api.PersonService;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.ehospitalws.dao.SmsOutboxDAO;
 import org.openmrs.module.ehospitalws.model.LLMMessages;
 import org.openmrs.module.ehospitalws.service.LLMMessagesService;
+import org.openmrs.module.ehospitalws.service.PatientContactService;
+import org.openmrs.module.ehospitalws.service.PatientDataService;
+import org.openmrs.module.ehospitalws.service.SmsOutboxService;
 import org.openmrs.module.ehospitalws.service.SmsService;
 import org.openmrs.module.ehospitalws.util.DateFormatterUtil;
+import org.openmrs.module.ehospitalws.util.JsonResponseWriter;
+import org.openmrs.module.ehospitalws.util.PatientSummaryCache;
 import org.openmrs.module.ehospitalws.web.constants.Constants;
+import org.openmrs.module.ehospitalws.web.dto.PatientContact;
+import org.openmrs.module.ehospitalws.web.dto.PatientSummaryBatch;
 import org.openmrs.module.webservices.rest.web.RestConstants;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.*;
@@ -18,13 +26,16 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.sql.Timestamp;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static org.openmrs.module.ehospitalws.web.constants.Constants.*;
+import static org.openmrs.module.ehospitalws.web.constants.SharedConcepts.*;
 
 /**
  * This class configured as controller using annotation and mapped with the URL of
@@ -34,6 +45,9 @@ import static org.openmrs.module.ehospitalws.web.constants.Constants.*;
 @RequestMapping(value = "/rest/" + RestConstants.VERSION_1 + "/ehospital")
 public class LLMController {
 	
+	/** Number of patients whose clinical data is prefetched at a time for batch summaries */
+	private static final int SUMMARY_CHUNK_SIZE = 100;
+	
 	private final SmsService smsService;
 	
 	private final Constants constants;
@@ -44,6 +58,15 @@ public class LLMController {
 	@Autowired
 	private PersonService personService;
 	
+	@Autowired
+	private PatientDataService patientDataService;
+	
+	@Autowired
+	private SmsOutboxService smsOutboxService;
+	
+	@Autowired
+	private PatientContactService patientContactService;
+	
 	public LLMController(SmsService smsService, Constants constants) {
 		this.smsService = smsService;
 		this.constants = constants;
@@ -51,31 +74,144 @@ public class LLMController {
 	
 	@RequestMapping(method = RequestMethod.GET, value = "/patient/encounter")
 	@ResponseBody
-	public Object getAllPatients(HttpServletRequest request, @RequestParam("patientUuid") String patientUuid)
-	        throws ParseException, IOException {
+	public Object getAllPatients(HttpServletRequest request, @RequestParam("patientUuid") String patientUuid,
+	        HttpServletResponse response) throws ParseException, IOException {
 		Patient patient = Context.getPatientService().getPatientByUuid(patientUuid);
 		if (patient == null) {
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).body("{\"error\": \"Patient not found\"}");
 		}
 		
-		ObjectNode patientData = generatePatientObject(patient);
+		ObjectNode patientData = getPatientSummaries(Collections.singletonList(patient), new ArrayList<>())
+		        .get(patient.getUuid());
+		JsonResponseWriter.write(response, patientData);
+		return null;
+	}
+	
+	/**
+	 * Streams LLM encounter summaries as NDJSON, one object per line starting with the patient's uuid.
+	 * Patients are taken from the uuids in the request body or, when none are given, from the date
+	 * range (yyyy-MM-dd, inclusive): patients with a visit in the range whose latest LLM consent is Yes,
+	 * or with {@code consentedOnly=false}, every patient with a visit in the range. Clinical data is
+	 * prefetched per chunk of patients, so the number of queries does not grow with the chunk size.
+	 * Unknown uuids get a line with an {@code error} field.
+	 */
+	@PostMapping("/patient/encounters")
+	@ResponseBody
+	public Object getPatientEncounters(@RequestBody(required = false) List<String> patientUuids,
+	        @RequestParam(required = false) String startDate, @RequestParam(required = false) String endDate,
+	        @RequestParam(defaultValue = "true") boolean consentedOnly, HttpServletResponse response)
+	        throws IOException {
+		if (!Context.isAuthenticated()) {
+			return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized");
+		}
+		
+		List<String> uuids = null;
+		List<Integer> patientIds = null;
+		if (patientUuids != null && !patientUuids.isEmpty()) {
+			uuids = patientUuids.stream().filter(Objects::nonNull).map(String::trim).filter(uuid -> !uuid.isEmpty())
+			        .distinct().collect(Collectors.toList());
+		} else if (startDate != null && endDate != null) {
+			try {
+				SimpleDateFormat inputDateFormat = new SimpleDateFormat("yyyy-MM-dd");
+				Date start = inputDateFormat.parse(startDate);
+				Date end = new Date(inputDateFormat.parse(endDate).getTime() + 24 * 60 * 60 * 1000);
+				patientIds = patientDataService.getLlmSummaryPatientIds(start, end, consentedOnly);
+			}
+			catch (ParseException e) {
+				return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid date format. Use YYYY-MM-DD.");
+			}
+		} else {
+			return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+			        .body("Provide patient uuids in the request body or a startDate and endDate.");
+		}
 		
-		ObjectMapper mapper = new ObjectMapper();
-		String jsonString = mapper.writeValueAsString(patientData);
+		response.setContentType(JsonResponseWriter.NDJSON_CONTENT_TYPE);
+		response.setCharacterEncoding("UTF-8");
+		JsonGenerator generator = JsonResponseWriter.createGenerator(response.getOutputStream());
 		
-		return ResponseEntity.ok(jsonString);
+		int total = uuids != null ? uuids.size() : patientIds.size();
+		for (int from = 0; from < total; from += SUMMARY_CHUNK_SIZE) {
+			int to = Math.min(from + SUMMARY_CHUNK_SIZE, total);
+			List<Patient> chunk = uuids != null
+			        ? new ArrayList<>(patientDataService.getPatientsByUuids(uuids.subList(from, to)).values())
+			        : patientDataService.getPatientsByIds(patientIds.subList(from, to));
+			
+			List<Object> loadedEntities = new ArrayList<>(chunk);
+			Map<String, ObjectNode> summaries = getPatientSummaries(chunk, loadedEntities);
+			if (uuids != null) {
+				for (String uuid : uuids.subList(from, to)) {
+					writeSummaryLine(generator, uuid, summaries.get(uuid));
+				}
+			} else {
+				for (Patient patient : chunk) {
+					writeSummaryLine(generator, patient.getUuid(), summaries.get(patient.getUuid()));
+				}
+			}
+			generator.flush();
+			
+			// Nothing loaded for this chunk is needed again, so keep the session from growing with the run
+			patientDataService.evictFromSession(loadedEntities);
+		}
+		generator.flush();
+		return null;
+	}
+	
+	private void writeSummaryLine(JsonGenerator generator, String patientUuid, ObjectNode patientData)
+	        throws IOException {
+		ObjectNode line = JsonNodeFactory.instance.objectNode();
+		line.put("patientUuid", patientUuid);
+		if (patientData != null) {
+			line.putAll(patientData);
+		} else {
+			line.put("error", "Patient not found");
+		}
+		generator.writeTree(line);
+		generator.writeRaw('\n');
+	}
+	
+	/**
+	 * Returns the summaries of the given patients keyed by uuid. Cached summaries are reused, and the
+	 * clinical data of the remaining patients is prefetched in one batch, whose entities are added to
+	 * {@code loadedEntities}.
+	 */
+	private Map<String, ObjectNode> getPatientSummaries(List<Patient> patients, List<Object> loadedEntities) {
+		Map<String, ObjectNode> summaries = new HashMap<>();
+		List<Patient> missing = new ArrayList<>();
+		for (Patient patient : patients) {
+			ObjectNode summary = PatientSummaryCache.get(patient.getUuid());
+			if (summary != null) {
+				summaries.put(patient.getUuid(), summary);
+			} else {
+				missing.add(patient);
+			}
+		}
+		if (missing.isEmpty()) {
+			return summaries;
+		}
+		
+		PatientSummaryBatch batch = patientDataService.prefetchPatientSummaryData(missing);
+		loadedEntities.addAll(batch.getLoadedEntities());
+		for (Patient patient : missing) {
+			ObjectNode summary = generatePatientObject(patient, batch);
+			PatientSummaryCache.put(patient.getUuid(), summary);
+			summaries.put(patient.getUuid(), summary);
+		}
+		return summaries;
 	}
 	
-	private static ObjectNode generatePatientObject(Patient patient) {
+	private ObjectNode generatePatientObject(Patient patient, PatientSummaryBatch batch) {
 		ObjectNode patientObj = JsonNodeFactory.instance.objectNode();
 		
+		// Vitals, diagnoses, orders, results and conditions all come from the prefetched batch
+		Map<String, Obs> latestVitals = batch.getLatestVitals(patient);
+		
 		populateBasicDetails(patient, patientObj);
-		populateVitals(patient, patientObj);
-		populateBloodPressure(patient, patientObj);
-		populateDiagnoses(patient, patientObj);
-		populateTests(patient, patientObj);
-		populateMedications(patient, patientObj);
-		populateConditions(patient, patientObj);
+		populateVitals(latestVitals, patientObj);
+		populateBloodPressure(latestVitals, patientObj);
+		populateDiagnoses(batch.getDiagnoses(patient), patientObj);
+		populateTests(batch.getTestOrders(patient), batch.getTestResults(patient), patientObj);
+		populateMedications(batch.getMedications(patient), patientObj);
+		populateConditions(batch.getConditions(patient), patientObj);
 		
 		return patientObj;
 	}
@@ -87,7 +223,8 @@ public class LLMController {
 			return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized");
 		}
 		
-		String phoneNumber = constants.getPatientPhoneNumber(patientUuid);
+		PatientContact contact = patientContactService.getContact(patientUuid);
+		String phoneNumber = contact != null ? contact.getPhoneNumber() : null;
 		
 		if (phoneNumber == null || phoneNumber.isEmpty()) {
 			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Phone number not found for the patient.");
@@ -162,27 +299,31 @@ public class LLMController {
 			responseMessage = "Failed to send message: " + e.getMessage();
 		}
 		
-		String status = smsSent ? "SENT" : "FAILED";
-		Timestamp sentAt = smsSent ? new Timestamp(System.currentTimeMillis()) : null;
-		llmMessagesService.updateMessageStatus(message.getId(), status, sentAt, responseMessage);
-		
 		if (smsSent) {
+			llmMessagesService.updateMessageStatus(message.getId(), "SENT", new Timestamp(System.currentTimeMillis()),
+			    responseMessage);
 			return ResponseEntity.ok(responseMessage);
 		} else {
-			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(responseMessage);
+			// Queued for the outbox task, which retries with backoff
+			smsOutboxService.recordFailure(SmsOutboxDAO.Table.LLM_MESSAGES, message.getId(), responseMessage);
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+			        .body(responseMessage + ". The message will be retried.");
 		}
 	}
 	
+	/**
+	 * Lists LLM messages newest first, one page at a time. When both dates (yyyy-MM-dd, inclusive) are
+	 * given, only messages created in that range are returned. The number of matching messages is sent
+	 * in the {@code X-Total-Count} header.
+	 */
 	@GetMapping("/messages/all")
 	public ResponseEntity<List<Map<String, Object>>> getAllMessages(@RequestParam(required = false) String startDate,
-	        @RequestParam(required = false) String endDate) {
+	        @RequestParam(required = false) String endDate, @RequestParam(defaultValue = "0") int page,
+	        @RequestParam(defaultValue = "50") int size) {
 		if (!Context.isAuthenticated()) {
 			return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
 		}
 		
-		List<LLMMessages> messages = llmMessagesService.getAllMessages();
-		List<Map<String, Object>> responseList = new ArrayList<>();
-		
 		Timestamp startTimestamp = null;
 		Timestamp endTimestamp = null;
 		
@@ -190,25 +331,33 @@ public class LLMController {
 			if (startDate != null && endDate != null) {
 				SimpleDateFormat inputDateFormat = new SimpleDateFormat("yyyy-MM-dd");
 				startTimestamp = new Timestamp(inputDateFormat.parse(startDate).getTime());
-				endTimestamp = new Timestamp(inputDateFormat.parse(endDate).getTime() + (24 * 60 * 60 * 1000 - 1));
+				endTimestamp = new Timestamp(inputDateFormat.parse(endDate).getTime() + 24 * 60 * 60 * 1000);
 			}
 		}
 		catch (ParseException e) {
 			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
 			    Collections.singletonList(Collections.singletonMap("error", "Invalid date format. Use YYYY-MM-DD.")));
 		}
+		int pageSize = Math.min(size, 500);
+		// Computed in long so that a large page cannot overflow into a negative offset
+		long firstResult = (long) page * pageSize;
+		if (page < 0 || size < 1 || firstResult > Integer.MAX_VALUE) {
+			return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+			        .body(Collections.singletonList(Collections.singletonMap("error", "Invalid page or size.")));
+		}
+		
+		List<LLMMessages> messages = llmMessagesService.getMessages(startTimestamp, endTimestamp, (int) firstResult,
+		    pageSize);
+		long totalCount = llmMessagesService.countMessages(startTimestamp, endTimestamp);
+		Map<String, PatientContact> contacts = patientContactService
+		        .getContacts(messages.stream().map(LLMMessages::getPatientUuid).collect(Collectors.toSet()));
 		
+		List<Map<String, Object>> responseList = new ArrayList<>();
 		for (LLMMessages message : messages) {
-			if (startTimestamp != null && endTimestamp != null) {
-				if (message.getCreatedTimestamp() == null || message.getCreatedTimestamp().before(startTimestamp)
-				        || message.getCreatedTimestamp().after(endTimestamp)) {
-					continue;
-				}
-			}
-			
 			Map<String, Object> messageData = new HashMap<>();
 			messageData.put("patientUuid", message.getPatientUuid());
-			messageData.put("patientName", constants.getPatientName(message.getPatientUuid()));
+			PatientContact contact = contacts.get(message.getPatientUuid());
+			messageData.put("patientName", contact != null ? contact.getFullName() : "Unknown Patient");
 			messageData.put("message", message.getMessage());
 			messageData.put("createdAt", DateFormatterUtil.formatTimestamp(message.getCreatedTimestamp()));
 			messageData.put("sentAt", DateFormatterUtil.formatTimestamp(message.getSentTimestamp()));
@@ -218,6 +367,6 @@ public class LLMController {
 			responseList.add(messageData);
 		}
 		
-		return ResponseEntity.ok(responseList);
+		return ResponseEntity.ok().header("X-Total-Count", String.valueOf(totalCount)).body(responseList);
 	}
 }
@@ -1,14 +1,12 @@
 package org.openmrs.module.ehospitalws.web.controller;
 
-import org.openmrs.Person;
-import org.openmrs.PersonAttribute;
-import org.openmrs.PersonAttributeType;
-import org.openmrs.api.PersonService;
-import org.openmrs.module.ehospitalws.model.ScheduledMessage;
 import org.openmrs.module.ehospitalws.constants.queries.GetNextAppointmentDate;
+import org.openmrs.module.ehospitalws.service.PatientContactService;
 import org.openmrs.module.ehospitalws.service.ScheduledMessageService;
 import org.openmrs.module.ehospitalws.service.SmsService;
 import org.openmrs.module.ehospitalws.task.ScheduledAppointmentReminderTask;
+import org.openmrs.module.ehospitalws.util.PageCursor;
+import org.openmrs.module.ehospitalws.web.dto.PatientContact;
 import org.openmrs.module.webservices.rest.web.RestConstants;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -17,11 +15,12 @@ import org.springframework.web.bind.annotation.*;
 
 import java.time.*;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import static org.openmrs.module.ehospitalws.task.ScheduledAppointmentReminderTask.LOCAL_TIMEZONE;
-import static org.openmrs.module.ehospitalws.web.constants.SharedConcepts.PHONE_NUMBER_UUID;
 
 @RestController
 @RequestMapping("/rest/" + RestConstants.VERSION_1 + "/ehospital")
@@ -36,7 +35,7 @@ public class SmsController {
 	private final ScheduledMessageService scheduledMessageService;
 	
 	@Autowired
-	private PersonService personService;
+	private PatientContactService patientContactService;
 	
 	public SmsController(GetNextAppointmentDate getNextAppointmentDate, SmsService smsService,
 	    ScheduledAppointmentReminderTask scheduledAppointmentReminderTask, ScheduledMessageService scheduledMessageService) {
@@ -46,10 +45,41 @@ public class SmsController {
 		this.scheduledMessageService = scheduledMessageService;
 	}
 	
+	/**
+	 * Lists messages scheduled or sent between {@code startDate} and {@code endDate} (yyyy-MM-dd, both
+	 * today by default), optionally filtered by a comma-separated list of statuses and by patient. Pages
+	 * are fetched with the {@code nextCursor} of the previous response.
+	 */
 	@GetMapping("/scheduled-messages")
-	public ResponseEntity<List<ScheduledMessage>> getScheduledAndSentMessages() {
-		List<ScheduledMessage> messages = scheduledMessageService.getScheduledAndSentMessages();
-		return ResponseEntity.ok(messages);
+	public ResponseEntity<?> getScheduledAndSentMessages(@RequestParam(required = false) String startDate,
+	        @RequestParam(required = false) String endDate, @RequestParam(required = false) List<String> status,
+	        @RequestParam(required = false) String patientUuid, @RequestParam(defaultValue = "50") int size,
+	        @RequestParam(required = false) String cursor) {
+		LocalDate fromDate;
+		LocalDate toDate;
+		PageCursor after;
+		try {
+			fromDate = startDate != null ? LocalDate.parse(startDate) : LocalDate.now();
+			toDate = endDate != null ? LocalDate.parse(endDate) : fromDate;
+			after = PageCursor.fromToken(cursor);
+		}
+		catch (DateTimeParseException e) {
+			return ResponseEntity.badRequest().body("Dates must be in yyyy-MM-dd format.");
+		}
+		catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().body("Invalid cursor.");
+		}
+		if (toDate.isBefore(fromDate) || size < 1) {
+			return ResponseEntity.badRequest().body("Invalid date range or page size.");
+		}
+		
+		return ResponseEntity
+		        .ok(scheduledMessageService.getMessages(fromDate, toDate, status, patientUuid, after, Math.min(size, 500)));
+	}
+	
+	@GetMapping("/sms/metrics")
+	public ResponseEntity<Map<String, Long>> getSmsMetrics() {
+		return ResponseEntity.ok(smsService.getMetrics());
 	}
 	
 	@PostMapping("/smsAppointmentReminder")
@@ -105,21 +135,13 @@ public class SmsController {
 	}
 	
 	private Object[] fetchPatientDetails(String patientUuid) {
-		Person person = personService.getPersonByUuid(patientUuid);
+		PatientContact contact = patientContactService.getContact(patientUuid);
 		
-		if (person == null) {
+		if (contact == null) {
 			throw new IllegalArgumentException("Patient not found for UUID: " + patientUuid);
 		}
 		
-		PersonAttributeType phoneAttributeType = personService.getPersonAttributeTypeByUuid(PHONE_NUMBER_UUID);
-		if (phoneAttributeType == null) {
-			throw new IllegalArgumentException("Phone attribute type not found.");
-		}
-		
-		PersonAttribute phoneAttribute = person.getAttribute(phoneAttributeType);
-		String phoneNumber = phoneAttribute != null ? phoneAttribute.getValue() : null;
-		
-		return new Object[] { person.getGivenName(), person.getFamilyName(), phoneNumber };
+		return new Object[] { contact.getGivenName(), contact.getFamilyName(), contact.getPhoneNumber() };
 	}
 	
 	private String getTimeOfDay() {
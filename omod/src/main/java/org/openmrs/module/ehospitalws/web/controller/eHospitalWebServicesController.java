@@ -10,12 +10,11 @@
 package org.openmrs.module.ehospitalws.web.controller;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
-import java.util.function.BiFunction;
-import java.util.function.BiPredicate;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -27,6 +26,9 @@ import org.codehaus.jackson.node.JsonNodeFactory;
 import org.codehaus.jackson.node.ObjectNode;
 import org.openmrs.*;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.ehospitalws.service.PatientDataService;
+import org.openmrs.module.ehospitalws.util.JsonResponseWriter;
+import org.openmrs.module.ehospitalws.util.PageCursor;
 import org.openmrs.module.ehospitalws.web.constants.Constants;
 import org.openmrs.module.ehospitalws.web.constants.GeneratePatientListObj;
 import org.openmrs.module.ehospitalws.web.dto.PatientObservations;
@@ -53,8 +55,12 @@ public class eHospitalWebServicesController {
 	
 	private final GeneratePatientListObj generatePatientListObj;
 	
-	public eHospitalWebServicesController(GeneratePatientListObj generatePatientListObj) {
+	private final PatientDataService patientDataService;
+	
+	public eHospitalWebServicesController(GeneratePatientListObj generatePatientListObj,
+	    PatientDataService patientDataService) {
 		this.generatePatientListObj = generatePatientListObj;
+		this.patientDataService = patientDataService;
 	}
 	
 	/** Logger for this class and subclasses */
@@ -70,26 +76,41 @@ public class eHospitalWebServicesController {
 	        @RequestParam("endDate") String qEndDate,
 	        @RequestParam(required = false, value = "filter") filterCategory filterCategory,
 	        @RequestParam(value = "page", defaultValue = "0") int page,
-	        @RequestParam(value = "size", defaultValue = "50") int size) throws ParseException {
+	        @RequestParam(value = "size", defaultValue = "50") int size,
+	        @RequestParam(required = false, value = "cursor") String cursor,
+	        @RequestParam(value = "stream", defaultValue = "false") boolean stream, HttpServletResponse response)
+	        throws ParseException, IOException {
 		Date startDate = dateTimeFormatter.parse(qStartDate);
 		Date endDate = dateTimeFormatter.parse(qEndDate);
 		
-		List<Patient> allPatients = Context.getPatientService().getAllPatients(false);
+		if (!isValidPage(page, size)) {
+			return ResponseEntity.badRequest().body("Invalid page or size.");
+		}
 		
-		// Filter patients by creation date
-		List<Patient> filteredPatients = allPatients.stream()
-		        .filter(patient -> patient.getDateCreated().after(startDate) && patient.getDateCreated().before(endDate))
-		        .collect(Collectors.toList());
+		PageCursor after;
+		try {
+			after = PageCursor.fromToken(cursor);
+		}
+		catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().body("Invalid cursor.");
+		}
+		
+		// Filter by creation date and paginate in the database; a cursor replaces the offset
+		int startIndex = after != null ? 0 : page * size;
+		List<Patient> paginatedPatients = patientDataService.getPatientsCreatedBetween(startDate, endDate, after,
+		    startIndex, size + 1);
+		long totalCount = patientDataService.countPatientsCreatedBetween(startDate, endDate);
 		
-		// Ensure pagination indexes are within range
-		int startIndex = Math.max(0, page * size);
-		int endIndex = Math.min(startIndex + size, filteredPatients.size());
+		ObjectNode allPatientsObj = JsonNodeFactory.instance.objectNode();
+		allPatientsObj.put("totalCount", totalCount);
 		
-		// Paginate the filtered list
-		List<Patient> paginatedPatients = filteredPatients.subList(startIndex, endIndex);
+		if (paginatedPatients.size() > size) {
+			paginatedPatients = paginatedPatients.subList(0, size);
+			Patient last = paginatedPatients.get(size - 1);
+			allPatientsObj.put("nextCursor", new PageCursor(last.getDateCreated(), last.getPatientId()).toToken());
+		}
 		
-		return generatePatientListObj.generatePatientListObj(new HashSet<>(paginatedPatients), startDate, endDate,
-		    filterCategory);
+		return writePatientList(paginatedPatients, startDate, endDate, filterCategory, allPatientsObj, stream, response);
 	}
 	
 	@RequestMapping(method = RequestMethod.GET, value = "/outPatientClients")
@@ -97,7 +118,10 @@ public class eHospitalWebServicesController {
 	public Object getAllOutPatientsClients(HttpServletRequest request, @RequestParam("startDate") String qStartDate,
 	        @RequestParam("endDate") String qEndDate,
 	        @RequestParam(required = false, value = "filter") filterCategory filterCategory,
-	        @RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "50") int size) throws ParseException {
+	        @RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "50") int size,
+	        @RequestParam(required = false, value = "cursor") String cursor,
+	        @RequestParam(value = "stream", defaultValue = "false") boolean stream, HttpServletResponse response)
+	        throws ParseException, IOException {
 		
 		Date startDate = dateTimeFormatter.parse(qStartDate);
 		Date endDate = dateTimeFormatter.parse(qEndDate);
@@ -106,26 +130,32 @@ public class eHospitalWebServicesController {
 			return ResponseEntity.badRequest().body("Start date and end date must not be null.");
 		}
 		
-		List<Patient> opdPatients = getOpdPatients(startDate, endDate);
-		
-		int totalOpdVisits = countOpdVisits(startDate, endDate);
-		int totalOpdRevisits = countOpdRevisits(startDate, endDate);
-		
-		int startIndex = page * size;
-		int endIndex = Math.min(startIndex + size, opdPatients.size());
+		if (!isValidPage(page, size)) {
+			return ResponseEntity.badRequest().body("Invalid page or size.");
+		}
 		
-		if (startIndex > opdPatients.size()) {
-			return ResponseEntity.badRequest().body("Page index out of bounds.");
+		PageCursor after;
+		try {
+			after = PageCursor.fromToken(cursor);
+		}
+		catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().body("Invalid cursor.");
 		}
 		
-		List<Patient> paginatedPatients = opdPatients.subList(startIndex, endIndex);
+		// Ordering by (first visit, patient id) and paging both happen in the database, plus a grouped count
+		// for the totals
+		List<String> visitTypeUuids = Arrays.asList(OPD_VISIT_UUID, OPD_REVISIT_UUID);
+		int startIndex = after != null ? 0 : page * size;
+		List<PageCursor> patientKeys = patientDataService.getOpdPatientKeys(visitTypeUuids, null, startDate, endDate,
+		    after, startIndex, size + 1);
+		Map<String, Long> visitCounts = patientDataService.countVisitsByType(visitTypeUuids, startDate, endDate);
 		
 		ObjectNode allPatientsObj = JsonNodeFactory.instance.objectNode();
-		allPatientsObj.put("totalOpdVisits", totalOpdVisits);
-		allPatientsObj.put("totalOpdRevisits", totalOpdRevisits);
+		allPatientsObj.put("totalOpdVisits", visitCounts.getOrDefault(OPD_VISIT_UUID, 0L));
+		allPatientsObj.put("totalOpdRevisits", visitCounts.getOrDefault(OPD_REVISIT_UUID, 0L));
 		
-		return generatePatientListObj.generatePatientListObj(new HashSet<>(paginatedPatients), startDate, endDate,
-		    filterCategory, allPatientsObj);
+		return generateKeyedPatientList(patientKeys, size, startDate, endDate, filterCategory, allPatientsObj, stream,
+		    response);
 	}
 	
 	@GetMapping(value = "/{type}")
@@ -134,26 +164,28 @@ public class eHospitalWebServicesController {
 	        @RequestParam("endDate") String qEndDate,
 	        @RequestParam(required = false, value = "filter") Optional<Constants.filterCategory> filterCategory,
 	        @RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "50") int size,
-	        @PathVariable String type) throws ParseException {
+	        @RequestParam(required = false, value = "cursor") String cursor,
+	        @RequestParam(value = "stream", defaultValue = "false") boolean stream, HttpServletResponse response,
+	        @PathVariable String type) throws ParseException, IOException {
 		
-		BiFunction<Patient, DateRange, Boolean> encounterTypeFilter;
+		String encounterTypeUuid;
 		
 		switch (type.toLowerCase()) {
 			case "consultation":
-				encounterTypeFilter = Constants::isConsultation;
+				encounterTypeUuid = CONSULTATION_ENCOUNTERTYPE_UUID;
 				break;
 			case "dental":
-				encounterTypeFilter = Constants::isDental;
+				encounterTypeUuid = DENTAL_ENCOUTERTYPE_UUID;
 				break;
 			case "ultrasound":
-				encounterTypeFilter = Constants::isUltrasound;
+				encounterTypeUuid = ULTRASOUND_ENCOUNTERTYPE_UUID;
 				break;
 			default:
 				throw new IllegalArgumentException("Invalid OPD type: " + type);
 		}
 		
-		return handleOpdPatientsRequest(qStartDate, qEndDate, filterCategory.orElse(null), page, size,
-		    (BiPredicate<Patient, DateRange>) encounterTypeFilter);
+		return handleOpdPatientsRequest(qStartDate, qEndDate, filterCategory.orElse(null), page, size, cursor,
+		    Arrays.asList(OPD_VISIT_UUID, OPD_REVISIT_UUID), encounterTypeUuid, stream, response);
 	}
 	
 	@RequestMapping(method = RequestMethod.GET, value = "/opdVisits")
@@ -161,30 +193,13 @@ public class eHospitalWebServicesController {
 	public Object getOpdVisits(HttpServletRequest request, @RequestParam("startDate") String qStartDate,
 	        @RequestParam("endDate") String qEndDate,
 	        @RequestParam(required = false, value = "filter") filterCategory filterCategory,
-	        @RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "50") int size) throws ParseException {
-		
-		Date startDate = dateTimeFormatter.parse(qStartDate);
-		Date endDate = dateTimeFormatter.parse(qEndDate);
-		
-		if (startDate == null || endDate == null) {
-			return ResponseEntity.badRequest().body("Start date and end date must not be null.");
-		}
-		
-		// Fetch OPD visits directly based on visits within the date range
-		List<Patient> opdVisitPatients = Context.getVisitService()
-		        .getVisits(null, null, null, null, startDate, endDate, null, null, null, true, false).stream()
-		        .filter(visit -> OPD_VISIT_UUID.equals(visit.getVisitType().getUuid())).map(Visit::getPatient).distinct()
-		        .collect(Collectors.toList());
-		
-		int startIndex = page * size;
-		int endIndex = Math.min(startIndex + size, opdVisitPatients.size());
-		
-		List<Patient> outpatientVisitsClients = opdVisitPatients.subList(startIndex, endIndex);
-		
-		ObjectNode allPatientsObj = JsonNodeFactory.instance.objectNode();
+	        @RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "50") int size,
+	        @RequestParam(required = false, value = "cursor") String cursor,
+	        @RequestParam(value = "stream", defaultValue = "false") boolean stream, HttpServletResponse response)
+	        throws ParseException, IOException {
 		
-		return generatePatientListObj.generatePatientListObj(new HashSet<>(outpatientVisitsClients), startDate, endDate,
-		    filterCategory, allPatientsObj);
+		return handleOpdPatientsRequest(qStartDate, qEndDate, filterCategory, page, size, cursor,
+		    Collections.singletonList(OPD_VISIT_UUID), null, stream, response);
 	}
 	
 	@RequestMapping(method = RequestMethod.GET, value = "/opdRevisits")
@@ -192,7 +207,18 @@ public class eHospitalWebServicesController {
 	public Object getOpdReVisits(HttpServletRequest request, @RequestParam("startDate") String qStartDate,
 	        @RequestParam("endDate") String qEndDate,
 	        @RequestParam(required = false, value = "filter") filterCategory filterCategory,
-	        @RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "50") int size) throws ParseException {
+	        @RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "50") int size,
+	        @RequestParam(required = false, value = "cursor") String cursor,
+	        @RequestParam(value = "stream", defaultValue = "false") boolean stream, HttpServletResponse response)
+	        throws ParseException, IOException {
+		
+		return handleOpdPatientsRequest(qStartDate, qEndDate, filterCategory, page, size, cursor,
+		    Collections.singletonList(OPD_REVISIT_UUID), null, stream, response);
+	}
+	
+	private Object handleOpdPatientsRequest(String qStartDate, String qEndDate, filterCategory filterCategory, int page,
+	        int size, String cursor, List<String> visitTypeUuids, String encounterTypeUuid, boolean stream,
+	        HttpServletResponse response) throws ParseException, IOException {
 		
 		Date startDate = dateTimeFormatter.parse(qStartDate);
 		Date endDate = dateTimeFormatter.parse(qEndDate);
@@ -201,48 +227,81 @@ public class eHospitalWebServicesController {
 			return ResponseEntity.badRequest().body("Start date and end date must not be null.");
 		}
 		
-		// Fetch OPD revisits directly based on visits within the date range
-		List<Patient> opdRevisitPatients = Context.getVisitService()
-		        .getVisits(null, null, null, null, startDate, endDate, null, null, null, true, false).stream()
-		        .filter(visit -> OPD_REVISIT_UUID.equals(visit.getVisitType().getUuid())).map(Visit::getPatient).distinct()
-		        .collect(Collectors.toList());
+		if (!isValidPage(page, size)) {
+			return ResponseEntity.badRequest().body("Invalid page or size.");
+		}
 		
-		int startIndex = page * size;
-		int endIndex = Math.min(startIndex + size, opdRevisitPatients.size());
+		PageCursor after;
+		try {
+			after = PageCursor.fromToken(cursor);
+		}
+		catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().body("Invalid cursor.");
+		}
 		
-		List<Patient> outpatientRevisitsClients = opdRevisitPatients.subList(startIndex, endIndex);
+		// Ordering by (first visit, patient id) and paging both happen in the database
+		int startIndex = after != null ? 0 : page * size;
+		List<PageCursor> patientKeys = patientDataService.getOpdPatientKeys(visitTypeUuids, encounterTypeUuid, startDate,
+		    endDate, after, startIndex, size + 1);
 		
 		ObjectNode allPatientsObj = JsonNodeFactory.instance.objectNode();
 		
-		return generatePatientListObj.generatePatientListObj(new HashSet<>(outpatientRevisitsClients), startDate, endDate,
-		    filterCategory, allPatientsObj);
+		return generateKeyedPatientList(patientKeys, size, startDate, endDate, filterCategory, allPatientsObj, stream,
+		    response);
 	}
 	
-	private Object handleOpdPatientsRequest(String qStartDate, String qEndDate, filterCategory filterCategory, int page,
-	        int size, BiPredicate<Patient, DateRange> typeFilter) throws ParseException {
-		
-		Date startDate = dateTimeFormatter.parse(qStartDate);
-		Date endDate = dateTimeFormatter.parse(qEndDate);
-		
-		if (startDate == null || endDate == null) {
-			return ResponseEntity.badRequest().body("Start date and end date must not be null.");
+	// The offset must fit in an int, and size + 1 rows are read to detect a next page
+	private static boolean isValidPage(int page, int size) {
+		return page >= 0 && size >= 1 && size < Integer.MAX_VALUE && (long) page * size <= Integer.MAX_VALUE;
+	}
+	
+	/**
+	 * Builds the list response from up to {@code size + 1} ordered keys. The extra key only signals that
+	 * another page exists, in which case the last returned key is handed back as {@code nextCursor}.
+	 */
+	private Object generateKeyedPatientList(List<PageCursor> patientKeys, int size, Date startDate, Date endDate,
+	        filterCategory filterCategory, ObjectNode allPatientsObj, boolean stream, HttpServletResponse response)
+	        throws IOException {
+		if (patientKeys.size() > size) {
+			patientKeys = patientKeys.subList(0, size);
+			allPatientsObj.put("nextCursor", patientKeys.get(size - 1).toToken());
 		}
 		
-		List<Patient> opdPatients = getOpdPatients(startDate, endDate, typeFilter);
-		
-		int startIndex = page * size;
-		int endIndex = Math.min(startIndex + size, opdPatients.size());
-		
-		if (startIndex >= opdPatients.size()) {
-			return ResponseEntity.badRequest().body("Page index out of bounds.");
+		List<Integer> patientIds = patientKeys.stream().map(PageCursor::getId).collect(Collectors.toList());
+		if (stream) {
+			return streamPatientList(patientIds, startDate, endDate, filterCategory, allPatientsObj, response);
 		}
 		
-		List<Patient> outpatientClients = opdPatients.subList(startIndex, endIndex);
-		
-		ObjectNode allPatientsObj = JsonNodeFactory.instance.objectNode();
+		List<Patient> patients = patientDataService.getPatientsByIds(patientIds);
+		return writePatientList(patients, startDate, endDate, filterCategory, allPatientsObj, false, response);
+	}
+	
+	/**
+	 * Writes the list document to the response, or, in stream mode, writes it row by row as each row is
+	 * built. Returns null so that nothing else is rendered.
+	 */
+	private Object writePatientList(List<Patient> patients, Date startDate, Date endDate, filterCategory filterCategory,
+	        ObjectNode allPatientsObj, boolean stream, HttpServletResponse response) throws IOException {
+		if (stream) {
+			return streamPatientList(patients.stream().map(Patient::getPatientId).collect(Collectors.toList()),
+			    startDate, endDate, filterCategory, allPatientsObj, response);
+		}
 		
-		return generatePatientListObj.generatePatientListObj(new HashSet<>(outpatientClients), startDate, endDate,
-		    filterCategory, allPatientsObj);
+		JsonResponseWriter.write(response, generatePatientListObj.generatePatientListObj(new LinkedHashSet<>(patients),
+		    startDate, endDate, filterCategory, allPatientsObj));
+		return null;
+	}
+	
+	/**
+	 * Streams the list document for the given patient ids, loading the patients a chunk at a time.
+	 */
+	private Object streamPatientList(List<Integer> patientIds, Date startDate, Date endDate,
+	        filterCategory filterCategory, ObjectNode allPatientsObj, HttpServletResponse response) throws IOException {
+		response.setContentType(JsonResponseWriter.JSON_CONTENT_TYPE);
+		response.setCharacterEncoding("UTF-8");
+		generatePatientListObj.streamPatientListObj(patientIds, startDate, endDate, filterCategory, allPatientsObj,
+		    response.getOutputStream());
+		return null;
 	}
 	
 	@RequestMapping(method = RequestMethod.GET, value = "/patient/obs")
@@ -0,0 +1,25 @@
+package org.openmrs.module.ehospitalws.web.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A patient with scheduled appointments on a given day, together with the name and phone number
+ * needed to remind them.
+ */
+@Data
+public class AppointmentReminderDetails {
+	
+	private String patientUuid;
+	
+	private String givenName;
+	
+	private String familyName;
+	
+	private String phoneNumber;
+	
+	private List<LocalDateTime> appointmentTimes = new ArrayList<>();
+}
@@ -0,0 +1,23 @@
+package org.openmrs.module.ehospitalws.web.dto;
+
+import lombok.Value;
+
+/**
+ * The name and phone number used to address a patient in SMS and message listings. Contacts are
+ * cached and shared between callers, so they are immutable.
+ */
+@Value
+public class PatientContact {
+	
+	private String patientUuid;
+	
+	private String givenName;
+	
+	private String familyName;
+	
+	private String phoneNumber;
+	
+	public String getFullName() {
+		return givenName + " " + familyName;
+	}
+}
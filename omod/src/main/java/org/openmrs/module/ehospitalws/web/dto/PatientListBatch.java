@@ -0,0 +1,121 @@
+package org.openmrs.module.ehospitalws.web.dto;
+
+import org.openmrs.Patient;
+import org.openmrs.PatientIdentifier;
+import org.openmrs.PersonAddress;
+import org.openmrs.PersonAttribute;
+import org.openmrs.PersonName;
+import org.openmrs.Visit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Row data prefetched for a page of patients, keyed by patient id, so that patient list rows can be
+ * assembled without touching lazy collections.
+ */
+public class PatientListBatch {
+	
+	private final Map<Integer, PersonName> names = new HashMap<>();
+	
+	private final Map<Integer, List<PatientIdentifier>> identifiers = new HashMap<>();
+	
+	private final Map<Integer, List<PersonAddress>> addresses = new HashMap<>();
+	
+	private final Map<Integer, List<PersonAttribute>> attributes = new HashMap<>();
+	
+	private final Map<Integer, List<Visit>> visits = new HashMap<>();
+	
+	private final Map<Integer, Visit> latestVisits = new HashMap<>();
+	
+	private final Map<Integer, List<String>> latestVisitDiagnoses = new HashMap<>();
+	
+	private final List<Object> loadedEntities = new ArrayList<>();
+	
+	public void putName(Integer patientId, PersonName name) {
+		names.putIfAbsent(patientId, name);
+	}
+	
+	public void addIdentifier(Integer patientId, PatientIdentifier identifier) {
+		identifiers.computeIfAbsent(patientId, id -> new ArrayList<>()).add(identifier);
+	}
+	
+	public void addAddress(Integer patientId, PersonAddress address) {
+		addresses.computeIfAbsent(patientId, id -> new ArrayList<>()).add(address);
+	}
+	
+	public void addAttribute(Integer patientId, PersonAttribute attribute) {
+		attributes.computeIfAbsent(patientId, id -> new ArrayList<>()).add(attribute);
+	}
+	
+	public void addVisit(Integer patientId, Visit visit) {
+		visits.computeIfAbsent(patientId, id -> new ArrayList<>()).add(visit);
+		Visit latest = latestVisits.get(patientId);
+		if (latest == null || visit.getStartDatetime().after(latest.getStartDatetime())) {
+			latestVisits.put(patientId, visit);
+		}
+	}
+	
+	public void addLatestVisitDiagnosis(Integer patientId, String diagnosis) {
+		List<String> diagnoses = latestVisitDiagnoses.computeIfAbsent(patientId, id -> new ArrayList<>());
+		if (!diagnoses.contains(diagnosis)) {
+			diagnoses.add(diagnosis);
+		}
+	}
+	
+	public void addLoadedEntity(Object entity) {
+		loadedEntities.add(entity);
+	}
+	
+	public PersonName getName(Patient patient) {
+		return names.get(patient.getPatientId());
+	}
+	
+	public List<PatientIdentifier> getIdentifiers(Patient patient) {
+		return identifiers.getOrDefault(patient.getPatientId(), Collections.emptyList());
+	}
+	
+	public List<PersonAddress> getAddresses(Patient patient) {
+		return addresses.getOrDefault(patient.getPatientId(), Collections.emptyList());
+	}
+	
+	/**
+	 * Mirrors {@link org.openmrs.Person#getAttribute(String)} over the prefetched attributes.
+	 */
+	public PersonAttribute getAttribute(Patient patient, String attributeTypeName) {
+		for (PersonAttribute attribute : attributes.getOrDefault(patient.getPatientId(),
+		    Collections.<PersonAttribute> emptyList())) {
+			if (attribute.getAttributeType() != null && attributeTypeName.equals(attribute.getAttributeType().getName())) {
+				return attribute;
+			}
+		}
+		return null;
+	}
+	
+	public List<Visit> getVisits(Patient patient) {
+		return visits.getOrDefault(patient.getPatientId(), Collections.emptyList());
+	}
+	
+	public Map<Integer, Visit> getLatestVisits() {
+		return latestVisits;
+	}
+	
+	public Visit getLatestVisit(Patient patient) {
+		return latestVisits.get(patient.getPatientId());
+	}
+	
+	public List<String> getLatestVisitDiagnoses(Patient patient) {
+		return latestVisitDiagnoses.getOrDefault(patient.getPatientId(), Collections.emptyList());
+	}
+	
+	/**
+	 * @return every entity the prefetch loaded into the session, so that it can be evicted once the rows
+	 *         are written
+	 */
+	public List<Object> getLoadedEntities() {
+		return loadedEntities;
+	}
+}
@@ -0,0 +1,123 @@
+package org.openmrs.module.ehospitalws.web.dto;
+
+import org.openmrs.Concept;
+import org.openmrs.Condition;
+import org.openmrs.DrugOrder;
+import org.openmrs.Obs;
+import org.openmrs.Order;
+import org.openmrs.Patient;
+import org.openmrs.Visit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Clinical data prefetched for a batch of LLM patient summaries: latest vitals per patient, and the
+ * diagnoses, orders, test results and conditions of each patient's latest visit.
+ */
+public class PatientSummaryBatch {
+	
+	private final Map<Integer, Map<String, Obs>> latestVitals = new HashMap<>();
+	
+	private final Map<Integer, Visit> latestVisits = new HashMap<>();
+	
+	private final Map<Integer, List<String>> diagnoses = new HashMap<>();
+	
+	private final Map<Integer, List<Order>> testOrders = new HashMap<>();
+	
+	private final Map<Integer, Map<Concept, List<Obs>>> testResults = new HashMap<>();
+	
+	private final Map<Integer, List<DrugOrder>> medications = new HashMap<>();
+	
+	private final Map<Integer, List<Condition>> conditions = new HashMap<>();
+	
+	private final List<Object> loadedEntities = new ArrayList<>();
+	
+	public void putLatestVital(Integer patientId, String conceptUuid, Obs obs) {
+		latestVitals.computeIfAbsent(patientId, id -> new HashMap<>()).putIfAbsent(conceptUuid, obs);
+	}
+	
+	public void putLatestVisit(Integer patientId, Visit visit) {
+		latestVisits.putIfAbsent(patientId, visit);
+	}
+	
+	public void addDiagnosis(Integer visitId, String diagnosis) {
+		List<String> visitDiagnoses = diagnoses.computeIfAbsent(visitId, id -> new ArrayList<>());
+		if (!visitDiagnoses.contains(diagnosis)) {
+			visitDiagnoses.add(diagnosis);
+		}
+	}
+	
+	public void addTestOrder(Integer visitId, Order order) {
+		testOrders.computeIfAbsent(visitId, id -> new ArrayList<>()).add(order);
+	}
+	
+	public void addTestResult(Integer visitId, Obs obs) {
+		testResults.computeIfAbsent(visitId, id -> new LinkedHashMap<>())
+		        .computeIfAbsent(obs.getConcept(), concept -> new ArrayList<>()).add(obs);
+	}
+	
+	public void addMedication(Integer visitId, DrugOrder order) {
+		medications.computeIfAbsent(visitId, id -> new ArrayList<>()).add(order);
+	}
+	
+	public void addCondition(Integer visitId, Condition condition) {
+		conditions.computeIfAbsent(visitId, id -> new ArrayList<>()).add(condition);
+	}
+	
+	public void addLoadedEntity(Object entity) {
+		loadedEntities.add(entity);
+	}
+	
+	public Map<Integer, Visit> getLatestVisits() {
+		return latestVisits;
+	}
+	
+	public Map<String, Obs> getLatestVitals(Patient patient) {
+		return latestVitals.getOrDefault(patient.getPatientId(), Collections.emptyMap());
+	}
+	
+	public Visit getLatestVisit(Patient patient) {
+		return latestVisits.get(patient.getPatientId());
+	}
+	
+	public List<String> getDiagnoses(Patient patient) {
+		return forLatestVisit(patient, diagnoses);
+	}
+	
+	public List<Order> getTestOrders(Patient patient) {
+		return forLatestVisit(patient, testOrders);
+	}
+	
+	public Map<Concept, List<Obs>> getTestResults(Patient patient) {
+		Visit visit = getLatestVisit(patient);
+		return visit != null ? testResults.getOrDefault(visit.getVisitId(), Collections.emptyMap())
+		        : Collections.emptyMap();
+	}
+	
+	public List<DrugOrder> getMedications(Patient patient) {
+		return forLatestVisit(patient, medications);
+	}
+	
+	public List<Condition> getConditions(Patient patient) {
+		return forLatestVisit(patient, conditions);
+	}
+	
+	/**
+	 * @return every entity the prefetch loaded into the session, so that it can be evicted once the
+	 *         summaries are written
+	 */
+	public List<Object> getLoadedEntities() {
+		return loadedEntities;
+	}
+	
+	private <T> List<T> forLatestVisit(Patient patient, Map<Integer, List<T>> byVisit) {
+		Visit visit = getLatestVisit(patient);
+		return visit != null ? byVisit.getOrDefault(visit.getVisitId(), Collections.emptyList())
+		        : Collections.emptyList();
+	}
+}
@@ -0,0 +1,21 @@
+package org.openmrs.module.ehospitalws.web.dto;
+
+import lombok.Data;
+import org.openmrs.module.ehospitalws.model.ScheduledMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One page of scheduled messages, with the number of messages matching the filters across all pages
+ * and the cursor for the next page, or null on the last page.
+ */
+@Data
+public class ScheduledMessagePage {
+	
+	private List<ScheduledMessage> results = new ArrayList<>();
+	
+	private long totalCount;
+	
+	private String nextCursor;
+}
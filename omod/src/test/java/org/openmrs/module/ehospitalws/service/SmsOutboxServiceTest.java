@@ -0,0 +1,58 @@
+package org.openmrs.module.ehospitalws.service;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.openmrs.module.ehospitalws.dao.SmsOutboxDAO;
+import org.openmrs.module.ehospitalws.model.OutboxMessage;
+
+import java.sql.Timestamp;
+import java.util.Collections;
+
+public class SmsOutboxServiceTest {
+	
+	private SmsOutboxDAO smsOutboxDAO;
+	
+	private SmsService smsService;
+	
+	private SmsOutboxService smsOutboxService;
+	
+	@Before
+	public void setUp() {
+		smsOutboxDAO = mock(SmsOutboxDAO.class);
+		smsService = mock(SmsService.class);
+		smsOutboxService = new SmsOutboxService(smsOutboxDAO, smsService);
+	}
+	
+	@Test
+	public void drain_shouldRequeueAndSendRemindersLeftClaimedByADeadDispatch() {
+		OutboxMessage message = new OutboxMessage();
+		message.setId(7L);
+		when(smsOutboxDAO.requeueStaleScheduledClaims(any(Timestamp.class), any(Timestamp.class))).thenReturn(1);
+		when(smsOutboxDAO.claimDueRetries(eq(SmsOutboxDAO.Table.SCHEDULED_MESSAGES), anyString(), any(Timestamp.class),
+		    any(Timestamp.class), anyInt())).thenReturn(1, 0);
+		when(smsOutboxDAO.getClaimedRetries(eq(SmsOutboxDAO.Table.SCHEDULED_MESSAGES), anyString()))
+		        .thenReturn(Collections.singletonList(message));
+		when(smsService.sendBulk(Collections.singletonList(message))).thenReturn(Collections.singleton(7L));
+		
+		assertEquals(1, smsOutboxService.drain(SmsOutboxDAO.Table.SCHEDULED_MESSAGES));
+		
+		InOrder inOrder = inOrder(smsOutboxDAO);
+		inOrder.verify(smsOutboxDAO).requeueStaleScheduledClaims(any(Timestamp.class), any(Timestamp.class));
+		inOrder.verify(smsOutboxDAO).claimDueRetries(eq(SmsOutboxDAO.Table.SCHEDULED_MESSAGES), anyString(),
+		    any(Timestamp.class), any(Timestamp.class), anyInt());
+		inOrder.verify(smsOutboxDAO).markSent(eq(SmsOutboxDAO.Table.SCHEDULED_MESSAGES),
+		    eq(Collections.singletonList(7L)), any(Timestamp.class), anyInt());
+	}
+	
+	@Test
+	public void drain_shouldNotRequeueLlmMessages() {
+		smsOutboxService.drain(SmsOutboxDAO.Table.LLM_MESSAGES);
+		
+		verify(smsOutboxDAO, never()).requeueStaleScheduledClaims(any(Timestamp.class), any(Timestamp.class));
+	}
+}
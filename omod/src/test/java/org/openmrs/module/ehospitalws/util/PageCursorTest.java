@@ -0,0 +1,31 @@
+package org.openmrs.module.ehospitalws.util;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.Date;
+
+public class PageCursorTest {
+	
+	@Test
+	public void fromToken_shouldRoundTripTheDateAndId() {
+		PageCursor cursor = new PageCursor(new Date(1735689600123L), 42);
+		
+		PageCursor parsed = PageCursor.fromToken(cursor.toToken());
+		
+		assertEquals(cursor.getDate(), parsed.getDate());
+		assertEquals(cursor.getId(), parsed.getId());
+	}
+	
+	@Test
+	public void fromToken_shouldReturnNullForBlankToken() {
+		assertNull(PageCursor.fromToken(null));
+		assertNull(PageCursor.fromToken(" "));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void fromToken_shouldRejectMalformedToken() {
+		PageCursor.fromToken("not-a-cursor");
+	}
+}
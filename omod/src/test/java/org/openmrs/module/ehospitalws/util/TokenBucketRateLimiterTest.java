@@ -0,0 +1,42 @@
+package org.openmrs.module.ehospitalws.util;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TokenBucketRateLimiterTest {
+	
+	private final AtomicLong clock = new AtomicLong();
+	
+	@Test
+	public void reserve_shouldNotWaitWithinTheBurst() {
+		TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 5, clock::get);
+		
+		for (int i = 0; i < 5; i++) {
+			assertEquals(0, limiter.reserve(1));
+		}
+	}
+	
+	@Test
+	public void reserve_shouldQueueCallersAtTheConfiguredRate() {
+		TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 1, clock::get);
+		
+		assertEquals(0, limiter.reserve(1));
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(100), limiter.reserve(1));
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(200), limiter.reserve(1));
+	}
+	
+	@Test
+	public void reserve_shouldRefillUpToTheBurstOnly() {
+		TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 2, clock::get);
+		limiter.reserve(2);
+		
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+		
+		assertEquals(0, limiter.reserve(2));
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(100), limiter.reserve(1));
+	}
+}